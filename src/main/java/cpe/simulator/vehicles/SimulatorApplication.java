@@ -2,7 +2,7 @@ package cpe.simulator.vehicles;
 
 import cpe.simulator.vehicles.api.Logger;
 import cpe.simulator.vehicles.config.SimulatorConfig;
-import cpe.simulator.vehicles.core.VehicleSimulator;
+import cpe.simulator.vehicles.core.SimulationEngine;
 import cpe.simulator.vehicles.infrastructure.ConsoleLogger;
 
 /** Point d'entree du simulateur de vehicules. */
@@ -15,7 +15,7 @@ public final class SimulatorApplication {
       logger.info("Demarrage du simulateur de vehicules (standalone)");
 
       SimulatorConfig config = SimulatorConfig.fromEnvironment();
-      VehicleSimulator simulator = SimulatorFactory.create(config, logger);
+      SimulationEngine simulator = SimulatorFactory.create(config, logger);
       simulator.run();
     } catch (Exception e) {
       logger.error("Erreur fatale: " + e.getMessage());
@@ -11,9 +11,18 @@ import cpe.simulator.vehicles.api.VehicleAssignmentService;
 import cpe.simulator.vehicles.api.VehicleRepository;
 import cpe.simulator.vehicles.config.SimulatorConfig;
 import cpe.simulator.vehicles.core.AssignmentEventHandler;
+import cpe.simulator.vehicles.core.DistanceMode;
+import cpe.simulator.vehicles.core.EventDrivenSimulator;
 import cpe.simulator.vehicles.core.Fleet;
+import cpe.simulator.vehicles.core.LocalProjection;
 import cpe.simulator.vehicles.core.MovementModel;
+import cpe.simulator.vehicles.core.RouteEngineType;
+import cpe.simulator.vehicles.core.RoutePlaybackMode;
+import cpe.simulator.vehicles.core.SimulationClock;
+import cpe.simulator.vehicles.core.SimulationEngine;
+import cpe.simulator.vehicles.core.SimulationEngineType;
 import cpe.simulator.vehicles.core.VehicleSimulator;
+import cpe.simulator.vehicles.core.VehicleState;
 import cpe.simulator.vehicles.infrastructure.http.AuthStrategy;
 import cpe.simulator.vehicles.infrastructure.http.HttpApiClient;
 import cpe.simulator.vehicles.infrastructure.http.KeycloakAuthStrategy;
@@ -21,17 +30,23 @@ import cpe.simulator.vehicles.infrastructure.sdmis.SdmisVehicleRepository;
 import cpe.simulator.vehicles.infrastructure.sdmis.SdmisRouteService;
 import cpe.simulator.vehicles.infrastructure.sdmis.SdmisVehicleAssignmentService;
 import cpe.simulator.vehicles.infrastructure.rabbitmq.RabbitMqTelemetryGateway;
+import cpe.simulator.vehicles.infrastructure.routing.CachingRouteService;
+import cpe.simulator.vehicles.infrastructure.routing.CoalescingRouteService;
+import cpe.simulator.vehicles.infrastructure.routing.DiskRouteStore;
+import cpe.simulator.vehicles.infrastructure.routing.LocalRouteService;
 import java.io.IOException;
 import java.net.http.HttpClient;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.List;
 
 /** Factory pour construire le simulateur de vehicules. */
 public final class SimulatorFactory {
 
   private SimulatorFactory() {}
 
-  public static VehicleSimulator create(SimulatorConfig config, Logger logger)
+  public static SimulationEngine create(SimulatorConfig config, Logger logger)
       throws IOException, InterruptedException {
     logger.info("Initialisation du simulateur de vehicules...");
 
@@ -42,7 +57,9 @@ public final class SimulatorFactory {
         new HttpApiClient(config.apiBaseUrl(), config.apiTimeoutMs(), auth, httpClient, mapper);
 
     VehicleRepository repository = new SdmisVehicleRepository(apiClient, logger);
-    Fleet fleet = new Fleet(repository.loadVehicles(), logger);
+    List<VehicleState> vehicles = repository.loadVehicles();
+    Fleet fleet =
+        new Fleet(vehicles, logger, config.simShardCount(), routePlayback(config, logger));
 
     TelemetryGateway telemetryGateway =
         new RabbitMqTelemetryGateway(
@@ -59,7 +76,7 @@ public final class SimulatorFactory {
             mapper,
             logger);
 
-    RouteService routeService = new SdmisRouteService(apiClient, logger);
+    RouteService routeService = createRouteService(config, apiClient, mapper, logger);
     VehicleAssignmentService assignmentService =
         new SdmisVehicleAssignmentService(apiClient, logger);
 
@@ -72,16 +89,40 @@ public final class SimulatorFactory {
             logger);
 
     MovementModel movementModel =
-        new MovementModel(config.vehicleSpeedMps(), config.positionEpsilonMeters());
+        new MovementModel(
+            config.vehicleSpeedMps(),
+            config.positionEpsilonMeters(),
+            config.geoDistanceMode().kernel(referenceLatitude(vehicles)));
+    if (config.geoDistanceMode() == DistanceMode.EQUIRECTANGULAR) {
+      logger.info("Controles d'arrivee vectorises: " + LocalProjection.isVectorized());
+    }
 
+    SimulationClock clock = SimulationClock.withTimeScale(config.simTimeScale());
+    if (config.simEngine() == SimulationEngineType.EVENT) {
+      return new EventDrivenSimulator(
+          fleet,
+          movementModel,
+          telemetryGateway,
+          assignmentHandler,
+          logger,
+          clock,
+          config.simTickMs(),
+          config.telemetryBaseSendIntervalMs(),
+          config.telemetryMovingSendIntervalMs(),
+          config.telemetryStatusSendIntervalMs(),
+          config.onSiteDurationMs(),
+          routeService,
+          config.routeSnapStart());
+    }
     return new VehicleSimulator(
         fleet,
         movementModel,
         telemetryGateway,
         assignmentHandler,
         logger,
-        Clock.systemUTC(),
+        clock,
         config.simTickMs(),
+        config.simMissedTickPolicy(),
         config.telemetryBaseSendIntervalMs(),
         config.telemetryMovingSendIntervalMs(),
         config.telemetryStatusSendIntervalMs(),
@@ -90,6 +131,61 @@ public final class SimulatorFactory {
         config.routeSnapStart());
   }
 
+  /**
+   * Service QG (ou graphe routier local), precede si configures du magasin sur disque puis du
+   * cache en memoire ; les demandes identiques simultanees sont regroupees avant le cache.
+   */
+  private static RouteService createRouteService(
+      SimulatorConfig config, HttpApiClient apiClient, ObjectMapper mapper, Logger logger)
+      throws IOException {
+    RouteService routeService;
+    if (config.routeEngine() == RouteEngineType.LOCAL) {
+      routeService =
+          LocalRouteService.open(
+              Path.of(config.routeGraphFile()),
+              config.routeGraphGeojson().isBlank() ? null : Path.of(config.routeGraphGeojson()),
+              mapper,
+              logger);
+    } else {
+      routeService =
+          new SdmisRouteService(apiClient, logger, config.routeSimplifyToleranceMeters());
+    }
+    if (!config.routeStoreDir().isBlank()) {
+      routeService =
+          DiskRouteStore.open(
+              Path.of(config.routeStoreDir()),
+              routeService,
+              logger,
+              config.routeCacheGridMeters(),
+              config.routeStoreMaxAgeMs());
+    }
+    routeService =
+        new CoalescingRouteService(routeService, logger, config.routeCacheGridMeters());
+    if (config.routeCacheSize() <= 0) {
+      return routeService;
+    }
+    return new CachingRouteService(
+        routeService,
+        logger,
+        config.routeCacheSize(),
+        config.routeCacheTtlMs(),
+        config.routeCacheGridMeters());
+  }
+
+  /**
+   * Mode de lecture des trajets. La lecture paresseuse repose sur le tick de {@link
+   * Fleet#advanceAll}, que le moteur a evenements n'appelle pas : elle y est remplacee par la
+   * lecture pas a pas.
+   */
+  private static RoutePlaybackMode routePlayback(SimulatorConfig config, Logger logger) {
+    if (config.simEngine() == SimulationEngineType.EVENT
+        && config.routePlayback() == RoutePlaybackMode.LAZY) {
+      logger.warn("ROUTE_PLAYBACK=lazy non supporte par SIM_ENGINE=event, lecture pas a pas");
+      return RoutePlaybackMode.STEPPED;
+    }
+    return config.routePlayback();
+  }
+
   private static HttpClient createHttpClient(SimulatorConfig config) {
     long connectTimeout = Math.min(config.keycloakTimeoutMs(), config.apiTimeoutMs());
     return HttpClient.newBuilder()
@@ -98,6 +194,19 @@ public final class SimulatorFactory {
         .build();
   }
 
+  /** Latitude moyenne des bases, centre de la projection locale des distances. */
+  private static double referenceLatitude(List<VehicleState> vehicles) {
+    double sum = 0.0;
+    int count = 0;
+    for (VehicleState vehicle : vehicles) {
+      if (vehicle.base() != null) {
+        sum += vehicle.base().latitude();
+        count++;
+      }
+    }
+    return count == 0 ? 0.0 : sum / count;
+  }
+
   private static ObjectMapper createObjectMapper() {
     ObjectMapper mapper = new ObjectMapper();
     mapper.setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
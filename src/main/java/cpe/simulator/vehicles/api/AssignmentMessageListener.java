@@ -3,6 +3,10 @@ package cpe.simulator.vehicles.api;
 import cpe.simulator.vehicles.messaging.AssignmentMessage;
 
 /** Callback pour les affectations recues via RabbitMQ. */
-public interface AssignmentMessageListener {
+public interface AssignmentMessageListener extends AutoCloseable {
   void onAssignment(AssignmentMessage message);
+
+  /** Libere les traitements en cours, appele a l'arret du moteur ; rien par defaut. */
+  @Override
+  default void close() {}
 }
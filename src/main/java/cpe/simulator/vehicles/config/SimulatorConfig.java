@@ -1,5 +1,10 @@
 package cpe.simulator.vehicles.config;
 
+import cpe.simulator.vehicles.core.DistanceMode;
+import cpe.simulator.vehicles.core.MissedTickPolicy;
+import cpe.simulator.vehicles.core.RouteEngineType;
+import cpe.simulator.vehicles.core.RoutePlaybackMode;
+import cpe.simulator.vehicles.core.SimulationEngineType;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,14 +36,29 @@ public record SimulatorConfig(
     long rabbitmqRetrySleepMs,
 
     // Simulation
+    SimulationEngineType simEngine,
     long simTickMs,
+    MissedTickPolicy simMissedTickPolicy,
+    double simTimeScale,
     double vehicleSpeedMps,
     double positionEpsilonMeters,
+    DistanceMode geoDistanceMode,
     long telemetryBaseSendIntervalMs,
     long telemetryMovingSendIntervalMs,
     long telemetryStatusSendIntervalMs,
     boolean telemetryLogPublishes,
     boolean routeSnapStart,
+    RouteEngineType routeEngine,
+    String routeGraphFile,
+    String routeGraphGeojson,
+    double routeSimplifyToleranceMeters,
+    int routeCacheSize,
+    long routeCacheTtlMs,
+    double routeCacheGridMeters,
+    String routeStoreDir,
+    long routeStoreMaxAgeMs,
+    RoutePlaybackMode routePlayback,
+    int simShardCount,
 
     // Intervention
     long onSiteDurationMs) {
@@ -63,14 +83,29 @@ public record SimulatorConfig(
         env.getOrDefault("RABBITMQ_EVENT_INCIDENT_STATUS", "incident_status_update"),
         env.getOrDefault("RABBITMQ_EVENT_ASSIGNMENT", "vehicle_assignment"),
         parseRetrySleepMs(env, "RETRY_SLEEP", 1.0),
+        parseEnum(env, "SIM_ENGINE", SimulationEngineType.FIXED_STEP),
         parseLong(env, "SIM_TICK_MS", 200L),
+        parseEnum(env, "SIM_MISSED_TICK_POLICY", MissedTickPolicy.SKIP),
+        parseDouble(env, "SIM_TIME_SCALE", 1.0),
         parseDouble(env, "VEHICLE_SPEED_MPS", 16.67),
         parseDouble(env, "POSITION_EPSILON_METERS", 20.0),
+        parseEnum(env, "GEO_DISTANCE_MODE", DistanceMode.HAVERSINE),
         parseLong(env, "TELEMETRY_BASE_SEND_INTERVAL_MS", 30_000L),
         parseLong(env, "TELEMETRY_MOVING_SEND_INTERVAL_MS", 1_000L),
         parseLong(env, "TELEMETRY_STATUS_SEND_INTERVAL_MS", 5_000L),
         parseBoolean(env, "TELEMETRY_LOG_PUBLISHES", false),
         parseBoolean(env, "ROUTE_SNAP_START", true),
+        parseEnum(env, "ROUTE_ENGINE", RouteEngineType.SDMIS),
+        env.getOrDefault("ROUTE_GRAPH_FILE", "data/roads.graph"),
+        env.getOrDefault("ROUTE_GRAPH_GEOJSON", ""),
+        parseDouble(env, "ROUTE_SIMPLIFY_TOLERANCE_METERS", 2.0),
+        parseInt(env, "ROUTE_CACHE_SIZE", 1_024),
+        parseLong(env, "ROUTE_CACHE_TTL_MS", 900_000L),
+        parseDouble(env, "ROUTE_CACHE_GRID_METERS", 25.0),
+        env.getOrDefault("ROUTE_STORE_DIR", ""),
+        parseLong(env, "ROUTE_STORE_MAX_AGE_MS", 604_800_000L),
+        parseEnum(env, "ROUTE_PLAYBACK", RoutePlaybackMode.STEPPED),
+        parseInt(env, "SIM_SHARD_COUNT", 1),
         parseLong(env, "ON_SITE_DURATION_MS", 60_000L));
   }
 
@@ -132,6 +167,18 @@ public record SimulatorConfig(
     }
   }
 
+  private static int parseInt(Map<String, String> env, String key, int defaultValue) {
+    String value = env.get(key);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
   private static double parseDouble(Map<String, String> env, String key, double defaultValue) {
     String value = env.get(key);
     if (value == null || value.isBlank()) {
@@ -152,6 +199,19 @@ public record SimulatorConfig(
     return Boolean.parseBoolean(value);
   }
 
+  private static <E extends Enum<E>> E parseEnum(
+      Map<String, String> env, String key, E defaultValue) {
+    String value = env.get(key);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return defaultValue;
+    }
+  }
+
   private static long parseRetrySleepMs(
       Map<String, String> env, String key, double defaultValueSeconds) {
     String value = env.get(key);
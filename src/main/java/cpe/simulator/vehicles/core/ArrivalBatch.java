@@ -0,0 +1,48 @@
+package cpe.simulator.vehicles.core;
+
+/**
+ * Lot de controles d'arrivee ranges en colonnes contigues, reutilise d'un tick a l'autre et evalue
+ * en une seule passe par {@link MovementModel#atTargetBatch}.
+ */
+final class ArrivalBatch {
+
+  final int[] vehicles;
+  final byte[] goals;
+  final double[] latitudes;
+  final double[] longitudes;
+  final double[] goalLatitudes;
+  final double[] goalLongitudes;
+  final double[] distances;
+  final boolean[] atGoal;
+  int size;
+
+  ArrivalBatch(int capacity) {
+    this.vehicles = new int[capacity];
+    this.goals = new byte[capacity];
+    this.latitudes = new double[capacity];
+    this.longitudes = new double[capacity];
+    this.goalLatitudes = new double[capacity];
+    this.goalLongitudes = new double[capacity];
+    this.distances = new double[capacity];
+    this.atGoal = new boolean[capacity];
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  void add(int vehicle, byte goal, double lat, double lon, double goalLat, double goalLon) {
+    vehicles[size] = vehicle;
+    goals[size] = goal;
+    latitudes[size] = lat;
+    longitudes[size] = lon;
+    goalLatitudes[size] = goalLat;
+    goalLongitudes[size] = goalLon;
+    size++;
+  }
+
+  void evaluate(MovementModel model) {
+    model.atTargetBatch(
+        latitudes, longitudes, goalLatitudes, goalLongitudes, size, distances, atGoal);
+  }
+}
@@ -6,14 +6,33 @@ import cpe.simulator.vehicles.api.RouteService;
 import cpe.simulator.vehicles.api.VehicleAssignmentService;
 import cpe.simulator.vehicles.domain.GeoPoint;
 import cpe.simulator.vehicles.messaging.AssignmentMessage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-/** Handler d'affectation de vehicule vers un incident. */
+/**
+ * Handler d'affectation de vehicule vers un incident.
+ *
+ * <p>La phase de l'incident et l'itineraire vers l'intervention sont demandes en parallele, sur
+ * des threads virtuels ; l'itineraire est annule si la phase ne peut pas etre obtenue.
+ *
+ * <p>Des l'affectation, la route de retour (intervention vers base) est demandee en tache de fond
+ * et rattachee au vehicule ({@link Fleet#attachReturnRoute}) : au depart de l'intervention, le
+ * retour n'attend plus le service de routage. Une nouvelle affectation du meme vehicule annule
+ * le prechargement en cours ; un resultat arrive trop tard est ecarte par l'epoque de mission.
+ * {@link #close} abandonne les prechargements a l'arret du moteur.
+ */
 public final class AssignmentEventHandler implements AssignmentMessageListener {
   private final Fleet fleet;
   private final RouteService routeService;
   private final VehicleAssignmentService assignmentService;
   private final boolean snapStart;
   private final Logger logger;
+  private final ExecutorService routingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+  // Les affectations arrivent sur un seul thread de consommation.
+  private final Future<?>[] returnPrefetches;
+  private volatile boolean closed;
 
   public AssignmentEventHandler(
       Fleet fleet,
@@ -26,6 +45,7 @@ public final class AssignmentEventHandler implements AssignmentMessageListener {
     this.assignmentService = assignmentService;
     this.snapStart = snapStart;
     this.logger = logger;
+    this.returnPrefetches = new Future<?>[fleet.size()];
   }
 
   @Override
@@ -34,21 +54,31 @@ public final class AssignmentEventHandler implements AssignmentMessageListener {
       return;
     }
     GeoPoint target = new GeoPoint(message.latitude(), message.longitude());
-    VehicleSnapshot snapshot = fleet.snapshotFor(message.immatriculation());
-    if (snapshot == null) {
+    int vehicle = fleet.indexOf(message.immatriculation());
+    if (vehicle < 0) {
       logger.warn("Affectation ignoree, vehicule inconnu: " + message.immatriculation());
       return;
     }
 
+    // L'itineraire est calcule pendant la recherche de la phase : l'affectation attend le plus
+    // long des deux appels et non leur somme.
+    GeoPoint start = fleet.snapshot(vehicle).position();
+    Future<RoutePlan> route =
+        routeService != null && start != null
+            ? routingExecutor.submit(() -> routeService.computeRoute(start, target, snapStart))
+            : null;
+
     String incidentPhaseId;
     try {
       incidentPhaseId = assignmentService.fetchIncidentPhaseId(message.immatriculation());
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+      cancel(route);
       logger.warn(
           "Affectation ignoree, recuperation phase interrompue: " + message.immatriculation());
       return;
     } catch (Exception e) {
+      cancel(route);
       logger.warn(
           "Affectation ignoree, recuperation phase en echec pour "
               + message.immatriculation()
@@ -58,26 +88,74 @@ public final class AssignmentEventHandler implements AssignmentMessageListener {
     }
 
     if (incidentPhaseId == null || incidentPhaseId.isBlank()) {
+      cancel(route);
       logger.warn(
           "Affectation ignoree, phase manquante: " + message.immatriculation());
       return;
     }
 
-    GeoPoint start = snapshot.position();
     RoutePlan plan = null;
-    if (routeService != null && start != null) {
+    if (route != null) {
       try {
-        plan = routeService.computeRoute(start, target, snapStart);
-      } catch (Exception e) {
-        logger.warn("Itineraire indisponible: " + e.getMessage());
+        plan = route.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancel(route);
+        logger.warn("Itineraire interrompu: " + message.immatriculation());
+      } catch (ExecutionException e) {
+        logger.warn("Itineraire indisponible: " + e.getCause().getMessage());
       }
     }
 
-    boolean updated =
-        fleet.setAssignment(message.immatriculation(), target, plan, incidentPhaseId);
+    boolean updated = fleet.setAssignment(vehicle, target, plan, incidentPhaseId);
     if (!updated) {
       logger.warn(
           "Affectation ignoree, vehicule inconnu: " + message.immatriculation());
+      return;
+    }
+    prefetchReturnRoute(vehicle, target);
+  }
+
+  /** Annule les prechargements de route de retour en cours et arrete leurs threads. */
+  @Override
+  public void close() {
+    closed = true;
+    for (Future<?> prefetch : returnPrefetches) {
+      cancel(prefetch);
+    }
+    routingExecutor.shutdownNow();
+  }
+
+  private static void cancel(Future<?> task) {
+    if (task != null) {
+      task.cancel(true);
+    }
+  }
+
+  private void prefetchReturnRoute(int vehicle, GeoPoint target) {
+    cancel(returnPrefetches[vehicle]);
+    GeoPoint base = fleet.snapshot(vehicle).base();
+    if (routeService == null || base == null) {
+      returnPrefetches[vehicle] = null;
+      return;
     }
+    int epoch = fleet.routeEpoch(vehicle);
+    String immat = fleet.immatriculation(vehicle);
+    returnPrefetches[vehicle] =
+        routingExecutor.submit(
+            () -> {
+              try {
+                RoutePlan returnPlan = routeService.computeRoute(target, base, snapStart);
+                // Un service qui ignore l'interruption ne doit rien rattacher apres l'arret.
+                if (!closed) {
+                  fleet.attachReturnRoute(vehicle, epoch, returnPlan);
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } catch (Exception e) {
+                logger.warn(
+                    "Prechargement route retour en echec pour " + immat + ": " + e.getMessage());
+              }
+            });
   }
 }
@@ -0,0 +1,24 @@
+package cpe.simulator.vehicles.core;
+
+/** Calcul de distance entre deux positions, en metres. */
+@FunctionalInterface
+public interface DistanceKernel {
+
+  /** Distance orthodromique exacte (haversine). */
+  DistanceKernel HAVERSINE = GeoMath::distanceMeters;
+
+  double distanceMeters(double lat1Deg, double lon1Deg, double lat2Deg, double lon2Deg);
+
+  /** Distances des {@code count} premieres paires de points, rangees dans {@code out}. */
+  default void distancesMeters(
+      double[] lat1Deg,
+      double[] lon1Deg,
+      double[] lat2Deg,
+      double[] lon2Deg,
+      int count,
+      double[] out) {
+    for (int k = 0; k < count; k++) {
+      out[k] = distanceMeters(lat1Deg[k], lon1Deg[k], lat2Deg[k], lon2Deg[k]);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package cpe.simulator.vehicles.core;
+
+/** Calcul de distance utilise par le mouvement des vehicules. */
+public enum DistanceMode {
+  /** Haversine exacte, valable a toute echelle. */
+  HAVERSINE,
+  /** Projection locale ({@link LocalProjection}), bien plus rapide a l'echelle d'une ville. */
+  EQUIRECTANGULAR;
+
+  /**
+   * @param referenceLatitudeDeg latitude autour de laquelle la projection locale est calculee
+   */
+  public DistanceKernel kernel(double referenceLatitudeDeg) {
+    return this == EQUIRECTANGULAR
+        ? new LocalProjection(referenceLatitudeDeg)
+        : DistanceKernel.HAVERSINE;
+  }
+}
@@ -0,0 +1,206 @@
+package cpe.simulator.vehicles.core;
+
+import cpe.simulator.vehicles.api.AssignmentMessageListener;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.api.TelemetryGateway;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moteur de simulation a evenements discrets : un vehicule n'est deplace qu'a ses propres
+ * echeances, sa position etant interpolee depuis son dernier passage.
+ *
+ * <p>Deux sources d'echeances :
+ *
+ * <ul>
+ *   <li>les controles d'arrivee, dans une file de priorite : programmes a la borne inferieure du
+ *       temps d'arrivee ({@link Fleet#secondsToArrival}) et reprogrammes tant que le vehicule
+ *       n'est pas arrive ;
+ *   <li>les reveils de la flotte (telemetrie due, fin du temps sur site) et les vehicules modifies
+ *       de l'exterieur (affectation), releves toutes les {@code pollMs} via {@link
+ *       Fleet#collectChanges}.
+ * </ul>
+ *
+ * <p>Le cout depend donc du nombre d'evenements et non du produit vehicules x ticks. Un vehicule
+ * reaffecte en cours de route rattrape le temps ecoule depuis son dernier passage vers sa nouvelle
+ * destination, ce qui reste borne par l'intervalle d'envoi des positions en mouvement.
+ */
+public final class EventDrivenSimulator implements SimulationEngine {
+
+  private static final long REPORT_INTERVAL_NANOS = 10_000_000_000L;
+  private static final long MIN_CHECK_DELAY_MS = 1L;
+
+  private final Fleet fleet;
+  private final MovementModel movementModel;
+  private final TelemetryGateway telemetryGateway;
+  private final AssignmentMessageListener assignmentListener;
+  private final Logger logger;
+  private final SimulationClock clock;
+  private final long pollMs;
+  private final VehicleLifecycle lifecycle;
+  private final PriorityQueue<ArrivalCheck> arrivalChecks =
+      new PriorityQueue<>(
+          Comparator.comparingLong(ArrivalCheck::atMs).thenComparingInt(ArrivalCheck::vehicle));
+  private final int[] checkGenerations;
+  private final long[] lastMoveMs;
+  private final boolean[] moving;
+  private long eventCount;
+  private long reportedEventCount;
+  private long lastReportNanos;
+
+  public EventDrivenSimulator(
+      Fleet fleet,
+      MovementModel movementModel,
+      TelemetryGateway telemetryGateway,
+      AssignmentMessageListener assignmentListener,
+      Logger logger,
+      SimulationClock clock,
+      long pollMs,
+      long baseSendIntervalMs,
+      long movingSendIntervalMs,
+      long statusSendIntervalMs,
+      long onSiteDurationMs,
+      RouteService routeService,
+      boolean routeSnapStart) {
+    this.fleet = fleet;
+    this.movementModel = movementModel;
+    this.telemetryGateway = telemetryGateway;
+    this.assignmentListener = assignmentListener;
+    this.logger = logger;
+    this.clock = clock;
+    this.pollMs = pollMs;
+    this.lifecycle =
+        new VehicleLifecycle(
+            fleet,
+            movementModel,
+            telemetryGateway,
+            logger,
+            baseSendIntervalMs,
+            movingSendIntervalMs,
+            statusSendIntervalMs,
+            onSiteDurationMs,
+            routeService,
+            routeSnapStart);
+    this.checkGenerations = new int[fleet.size()];
+    this.lastMoveMs = new long[fleet.size()];
+    this.moving = new boolean[fleet.size()];
+  }
+
+  @Override
+  public void run() {
+    logger.info("Vehicules charges: " + fleet.size() + " (moteur a evenements)");
+    if (clock.timeScale() != 1.0) {
+      logger.info("Temps simule accelere: x" + clock.timeScale());
+    }
+    lifecycle.initializeVehiclesNotAtBase();
+    telemetryGateway.start(assignmentListener);
+    lastReportNanos = System.nanoTime();
+    Arrays.fill(lastMoveMs, clock.millis());
+
+    try {
+      long nextPollMs = clock.millis();
+      while (!Thread.currentThread().isInterrupted()) {
+        ArrivalCheck next = arrivalChecks.peek();
+        long nextEventMs = next == null ? nextPollMs : Math.min(nextPollMs, next.atMs());
+        sleepUntilMs(nextEventMs);
+        long nowMs = Math.max(clock.millis(), nextEventMs);
+
+        while (!arrivalChecks.isEmpty() && arrivalChecks.peek().atMs() <= nowMs) {
+          ArrivalCheck check = arrivalChecks.poll();
+          if (check.generation() == checkGenerations[check.vehicle()]) {
+            processVehicle(check.vehicle(), 0, nowMs);
+          }
+        }
+
+        if (nowMs >= nextPollMs) {
+          FleetChanges changes = fleet.collectChanges(nowMs);
+          for (int k = 0; k < changes.size(); k++) {
+            processVehicle(changes.vehicleAt(k), changes.flagsAt(k), nowMs);
+          }
+          nextPollMs = nowMs + pollMs;
+        }
+
+        reportEventStats();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Simulation interrompue");
+    } finally {
+      lifecycle.close();
+      fleet.close();
+      telemetryGateway.close();
+      assignmentListener.close();
+    }
+  }
+
+  /** Nombre de passages de vehicules traites depuis le demarrage. */
+  public long eventCount() {
+    return eventCount;
+  }
+
+  /**
+   * Rattrape le deplacement du vehicule jusqu'a {@code nowMs}, le traite comme le moteur a pas
+   * fixe puis reprogramme son reveil et son controle d'arrivee.
+   */
+  private void processVehicle(int index, int flags, long nowMs) {
+    eventCount++;
+    double deltaSeconds = moving[index] ? (nowMs - lastMoveMs[index]) / 1_000.0 : 0.0;
+    lastMoveMs[index] = nowMs;
+
+    VehicleTransition transition =
+        fleet.advanceVehicle(index, movementModel, deltaSeconds, nowMs);
+    if (transition == VehicleTransition.ARRIVED_AT_BASE) {
+      flags |= FleetChanges.STATUS | FleetChanges.ASSIGNMENT;
+    } else if (transition == VehicleTransition.ARRIVED_AT_TARGET) {
+      flags |= FleetChanges.STATUS;
+    }
+    if (deltaSeconds > 0.0) {
+      flags |= FleetChanges.POSITION;
+    }
+
+    fleet.scheduleWake(index, lifecycle.process(index, flags, nowMs));
+    moving[index] = fleet.isMoving(index, movementModel);
+    scheduleArrivalCheck(index, nowMs);
+  }
+
+  private void scheduleArrivalCheck(int index, long nowMs) {
+    int generation = ++checkGenerations[index];
+    double seconds = fleet.secondsToArrival(index, movementModel);
+    if (Double.isInfinite(seconds)) {
+      return;
+    }
+    long delayMs = Math.max(MIN_CHECK_DELAY_MS, (long) Math.ceil(seconds * 1_000.0));
+    arrivalChecks.add(new ArrivalCheck(nowMs + delayMs, index, generation));
+  }
+
+  private void sleepUntilMs(long targetMs) throws InterruptedException {
+    long delayMs = targetMs - clock.millis();
+    if (delayMs > 0) {
+      clock.sleepUntil(clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+    }
+  }
+
+  /** Journalise, hors temps reel et au plus toutes les 10 secondes reelles, la cadence atteinte. */
+  private void reportEventStats() {
+    long now = System.nanoTime();
+    long elapsedNanos = now - lastReportNanos;
+    if (elapsedNanos < REPORT_INTERVAL_NANOS) {
+      return;
+    }
+    if (clock.timeScale() != 1.0) {
+      logger.info(
+          "Cadence: "
+              + Math.round((eventCount - reportedEventCount) * 1_000_000_000.0 / elapsedNanos)
+              + " evenements/s, temps simule "
+              + clock.instant());
+    }
+    reportedEventCount = eventCount;
+    lastReportNanos = now;
+  }
+
+  /** Controle d'arrivee programme ; ignore si une programmation plus recente l'a remplace. */
+  private record ArrivalCheck(long atMs, int vehicle, int generation) {}
+}
@@ -2,60 +2,269 @@ package cpe.simulator.vehicles.core;
 
 import cpe.simulator.vehicles.api.Logger;
 import cpe.simulator.vehicles.domain.GeoPoint;
+import cpe.simulator.vehicles.domain.VehicleStatus;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
-/** Stockage thread-safe des vehicules simules. */
+/**
+ * Stockage thread-safe des vehicules simules.
+ *
+ * <p>L'etat est range en colonnes primitives (une case par vehicule) plutot qu'en objets : le tick
+ * parcourt des tableaux contigus et deplace les vehicules en place, sans allocation. Une position
+ * ou une cible absente est codee par {@code NaN}. L'index d'un vehicule est fixe au chargement.
+ *
+ * <p>Avec plusieurs shards, la flotte est decoupee en plages d'index fixes traitees en parallele :
+ * chaque shard deplace ses vehicules et applique leurs transitions d'arrivee. Un vehicule n'est
+ * jamais lu ni ecrit par un autre shard, le resultat par vehicule ne depend donc pas du decoupage.
+ *
+ * <p>Chaque modification marque le vehicule comme sale ; {@link #advanceAll} ne restitue que ces
+ * vehicules et ceux dont le reveil programme via {@link #scheduleWake} est echu, dans un
+ * {@link FleetChanges} reutilise. Les reveils sont ranges dans une {@link TimingWheel} : un tick
+ * ne touche que les vehicules reellement echus, un vehicule immobile ne coute rien entre-temps.
+ *
+ * <p>Les vehicules sont aussi indexes par status (un {@link BitSet} et un compteur par status). Le
+ * tick ne parcourt que l'ensemble actif : vehicules {@code ENGAGE} ou {@code RETOUR}, plus les
+ * rares vehicules {@code DISPONIBLE} hors de leur base. Un vehicule disponible a sa base n'est
+ * donc plus deplace ni compare a sa base a chaque tick.
+ *
+ * <p>En lecture paresseuse ({@link RoutePlaybackMode#LAZY}), un trajet affecte est lu en
+ * fonction du temps : le vehicule sort de l'ensemble actif jusqu'a la fin du trajet, sa position
+ * n'est evaluee que lorsqu'elle est lue ({@link #snapshot}) et un reveil est programme a l'heure
+ * d'arrivee precalculee. Il reprend ensuite le pas normal (dernier troncon vers la cible,
+ * controle d'arrivee).
+ *
+ * <p>Le moteur a evenements n'appelle pas {@link #advanceAll} : il deplace chaque vehicule a ses
+ * propres echeances via {@link #advanceVehicle} et relit le flux via {@link #collectChanges}. La
+ * lecture paresseuse, demarree par le tick, n'y est pas disponible.
+ *
+ * <p>Les positions sont aussi rangees dans une {@link SpatialGrid}, mise a jour pour chaque
+ * vehicule remonte dans le flux : {@link #withinRadius} et {@link #nearest} repondent sans
+ * parcourir ni copier la flotte. Un trajet en lecture paresseuse n'est reindexe qu'a la lecture
+ * de sa position ou a chaque reveil du vehicule.
+ *
+ * <p>Chaque changement de mission (affectation, retour, arrivee a la base) incremente l'epoque du
+ * vehicule ({@link #routeEpoch}) : un trajet calcule en tache de fond n'est raccorde par
+ * {@link #spliceRoute} que si la mission pour laquelle il a ete demande est toujours en cours.
+ * Il en va de meme pour la route de retour prechargee des l'affectation
+ * ({@link #attachReturnRoute}), gardee a cote de la mission jusqu'au depart.
+ */
 public final class Fleet {
 
-  private final Map<String, VehicleState> vehicles = new ConcurrentHashMap<>();
+  private static final VehicleStatus[] STATUSES = VehicleStatus.values();
+  private static final VehicleTransition[] TRANSITIONS = VehicleTransition.values();
+  private static final long WAKE_RESOLUTION_MS = 100L;
+  private static final int WAKE_SLOTS = 1024;
+  private static final byte GOAL_NONE = 0;
+  private static final byte GOAL_TARGET = 1;
+  private static final byte GOAL_BASE = 2;
+  private static final double GRID_CELL_METERS = 500.0;
+
+  private final Map<String, Integer> indexByImmatriculation;
+  private final String[] immatriculations;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final double[] baseLatitudes;
+  private final double[] baseLongitudes;
+  private final double[] targetLatitudes;
+  private final double[] targetLongitudes;
+  private final byte[] statuses;
+  private final String[] incidentPhaseIds;
+  private final RoutePlan[] routePlans;
+  private final int[] routeEpochs;
+  private final RoutePlan[] returnRoutes;
+  private final long[] arrivedAtTargetMs;
+  private final byte[] transitions;
+  private final BitSet[] statusMembers;
+  private final int[] statusCounts;
+  private final byte[] indexedStatuses;
+  private final BitSet active;
+  private final RoutePlaybackMode playbackMode;
+  private final BitSet playing;
+  private final BitSet pendingPlayback;
+  private long lastTickMs;
+  private final SpatialGrid grid;
+  private final TimingWheel wakeWheel;
+  private final IntConsumer markDue = this::onWake;
+  private final byte[] dirtyFlags;
+  private final int[] dirtyVehicles;
+  private int dirtyCount;
+  private final FleetChanges changes;
+  private final int size;
+  private final ShardTask[] shards;
+  private final ForkJoinPool pool;
+  private final RecursiveAction allShards;
   private final IncidentCoordinator incidentCoordinator = new IncidentCoordinator();
   private final Logger logger;
 
   public Fleet(List<VehicleState> initial, Logger logger) {
+    this(initial, logger, 1);
+  }
+
+  public Fleet(List<VehicleState> initial, Logger logger, int shardCount) {
+    this(initial, logger, shardCount, RoutePlaybackMode.STEPPED);
+  }
+
+  public Fleet(
+      List<VehicleState> initial,
+      Logger logger,
+      int shardCount,
+      RoutePlaybackMode playbackMode) {
     this.logger = logger;
+    this.playbackMode = playbackMode;
+    this.indexByImmatriculation = new HashMap<>(initial.size() * 2);
+    List<VehicleState> accepted = new ArrayList<>(initial.size());
     for (VehicleState state : initial) {
-      VehicleState existing = vehicles.putIfAbsent(state.immatriculation(), state);
-      if (existing != null) {
+      if (indexByImmatriculation.putIfAbsent(state.immatriculation(), accepted.size()) != null) {
         logger.warn("Immatriculation en double ignorée: " + state.immatriculation());
+        continue;
       }
+      accepted.add(state);
+    }
+
+    this.size = accepted.size();
+    this.immatriculations = new String[size];
+    this.latitudes = new double[size];
+    this.longitudes = new double[size];
+    this.baseLatitudes = new double[size];
+    this.baseLongitudes = new double[size];
+    this.targetLatitudes = new double[size];
+    this.targetLongitudes = new double[size];
+    this.statuses = new byte[size];
+    this.incidentPhaseIds = new String[size];
+    this.routePlans = new RoutePlan[size];
+    this.routeEpochs = new int[size];
+    this.returnRoutes = new RoutePlan[size];
+    this.arrivedAtTargetMs = new long[size];
+    this.transitions = new byte[size];
+    this.statusMembers = new BitSet[STATUSES.length];
+    for (int s = 0; s < STATUSES.length; s++) {
+      statusMembers[s] = new BitSet(size);
+    }
+    this.statusCounts = new int[STATUSES.length];
+    this.indexedStatuses = new byte[size];
+    this.active = new BitSet(size);
+    this.playing = new BitSet(size);
+    this.pendingPlayback = new BitSet(size);
+    this.wakeWheel = new TimingWheel(size, WAKE_RESOLUTION_MS, WAKE_SLOTS);
+    this.dirtyFlags = new byte[size];
+    this.dirtyVehicles = new int[size];
+    this.changes = new FleetChanges(size);
+
+    Arrays.fill(targetLatitudes, Double.NaN);
+    Arrays.fill(targetLongitudes, Double.NaN);
+    Arrays.fill(statuses, (byte) VehicleStatus.DISPONIBLE.ordinal());
+    Arrays.fill(indexedStatuses, (byte) VehicleStatus.DISPONIBLE.ordinal());
+    statusMembers[VehicleStatus.DISPONIBLE.ordinal()].set(0, size);
+    statusCounts[VehicleStatus.DISPONIBLE.ordinal()] = size;
+    Arrays.fill(arrivedAtTargetMs, -1L);
+
+    for (int i = 0; i < size; i++) {
+      VehicleState state = accepted.get(i);
+      GeoPoint base = state.base();
+      GeoPoint position = state.position() != null ? state.position() : base;
+      immatriculations[i] = state.immatriculation();
+      baseLatitudes[i] = base != null ? base.latitude() : Double.NaN;
+      baseLongitudes[i] = base != null ? base.longitude() : Double.NaN;
+      latitudes[i] = position != null ? position.latitude() : Double.NaN;
+      longitudes[i] = position != null ? position.longitude() : Double.NaN;
+      wakeWheel.schedule(i, 0L);
+      reindex(i, null);
+    }
+    this.grid =
+        new SpatialGrid(latitudes, longitudes, GRID_CELL_METERS, meanLatitude(latitudes));
+    for (int i = 0; i < size; i++) {
+      grid.update(i);
     }
+
+    int shardTotal = Math.max(1, Math.min(shardCount, Math.max(1, size)));
+    this.shards = new ShardTask[shardTotal];
+    for (int s = 0; s < shardTotal; s++) {
+      shards[s] =
+          new ShardTask(
+              (int) ((long) size * s / shardTotal), (int) ((long) size * (s + 1) / shardTotal));
+    }
+    this.pool =
+        shardTotal > 1
+            ? new ForkJoinPool(Math.min(shardTotal, Runtime.getRuntime().availableProcessors()))
+            : null;
+    this.allShards =
+        new RecursiveAction() {
+          @Override
+          protected void compute() {
+            invokeAll(shards);
+          }
+        };
   }
 
   public int size() {
-    return vehicles.size();
+    return size;
   }
 
-  public List<VehicleSnapshot> snapshots() {
-    List<VehicleSnapshot> list = new ArrayList<>(vehicles.size());
-    for (VehicleState state : vehicles.values()) {
-      list.add(state.snapshot());
+  public synchronized List<VehicleSnapshot> snapshots() {
+    List<VehicleSnapshot> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(snapshotAt(i));
     }
     return list;
   }
 
-  public VehicleSnapshot snapshotFor(String immatriculation) {
-    VehicleState state = vehicles.get(immatriculation);
-    if (state == null) {
-      return null;
+  /** Snapshot du vehicule a l'index donne, tel que publie par {@link FleetChanges}. */
+  public synchronized VehicleSnapshot snapshot(int index) {
+    return snapshotAt(index);
+  }
+
+  /**
+   * Index dense attribue au vehicule au chargement, ou {@code -1} s'il est inconnu. C'est la seule
+   * recherche par immatriculation : le reste de la simulation manipule les index.
+   */
+  public int indexOf(String immatriculation) {
+    Integer index = immatriculation == null ? null : indexByImmatriculation.get(immatriculation);
+    return index == null ? -1 : index;
+  }
+
+  public String immatriculation(int index) {
+    return immatriculations[index];
+  }
+
+  /**
+   * Programme le prochain passage du vehicule dans le flux, meme s'il n'a pas change. Remplace le
+   * reveil precedent ; au chargement chaque vehicule est echu immediatement.
+   */
+  public synchronized void scheduleWake(int index, long atMs) {
+    if (playing.get(index)) {
+      atMs = Math.min(atMs, routePlans[index].playbackEndMs());
     }
-    return state.snapshot();
+    wakeWheel.schedule(index, atMs);
   }
 
-  public boolean setAssignment(
-      String immatriculation, GeoPoint target, RoutePlan plan, String incidentPhaseId) {
-    VehicleState state = vehicles.get(immatriculation);
-    if (state == null) {
+  public synchronized boolean setAssignment(
+      int index, GeoPoint target, RoutePlan plan, String incidentPhaseId) {
+    if (isUnknown(index)) {
       return false;
     }
     if (incidentPhaseId == null || incidentPhaseId.isBlank()) {
-      logger.warn("Affectation ignoree (phase manquante): " + immatriculation);
+      logger.warn("Affectation ignoree (phase manquante): " + immatriculations[index]);
       return false;
     }
-    state.setAssignment(target, plan, incidentPhaseId);
-    incidentCoordinator.registerVehicle(immatriculation, incidentPhaseId, target);
+    stopPlayback(index);
+    setTarget(index, target);
+    routePlans[index] = plan;
+    routeEpochs[index]++;
+    returnRoutes[index] = null;
+    schedulePlayback(index);
+    incidentPhaseIds[index] = incidentPhaseId;
+    statuses[index] = (byte) VehicleStatus.ENGAGE.ordinal();
+    arrivedAtTargetMs[index] = -1L;
+    reindex(index, null);
+    markDirty(index, FleetChanges.STATUS | FleetChanges.ASSIGNMENT);
+    incidentCoordinator.registerVehicle(index, incidentPhaseId, target);
     return true;
   }
 
@@ -63,47 +272,606 @@ public final class Fleet {
     return incidentCoordinator;
   }
 
-  public boolean assignToBase(String immatriculation) {
-    VehicleState state = vehicles.get(immatriculation);
-    if (state == null) {
+  public synchronized boolean assignToBase(int index) {
+    if (isUnknown(index)) {
       return false;
     }
-    state.assignToBase();
+    stopPlayback(index);
+    clearTarget(index);
+    routePlans[index] = null;
+    routeEpochs[index]++;
+    returnRoutes[index] = null;
+    incidentPhaseIds[index] = null;
+    statuses[index] = (byte) VehicleStatus.DISPONIBLE.ordinal();
+    arrivedAtTargetMs[index] = -1L;
+    reindex(index, null);
+    markDirty(index, FleetChanges.STATUS | FleetChanges.ASSIGNMENT);
     return true;
   }
 
-  public boolean markArrivedAtTarget(String immatriculation, long timestampMs) {
-    VehicleState state = vehicles.get(immatriculation);
-    if (state == null) {
+  public synchronized boolean markArrivedAtTarget(int index, long timestampMs) {
+    if (isUnknown(index)) {
       return false;
     }
-    state.markArrivedAtTarget(timestampMs);
+    if (arrivedAtTargetMs[index] < 0) {
+      arrivedAtTargetMs[index] = timestampMs;
+      statuses[index] = (byte) VehicleStatus.SUR_INTERVENTION.ordinal();
+      reindex(index, null);
+      markDirty(index, FleetChanges.STATUS);
+    }
     return true;
   }
 
-  public boolean startReturn(String immatriculation) {
-    VehicleState state = vehicles.get(immatriculation);
-    if (state == null) {
+  public synchronized boolean startReturn(int index) {
+    if (isUnknown(index)) {
       return false;
     }
-    state.startReturn();
+    // Ne pas modifier la cible ni le trajet ici : startReturnWithRoute s'en charge
+    // si une route est disponible.
+    routeEpochs[index]++;
+    statuses[index] = (byte) VehicleStatus.RETOUR.ordinal();
+    arrivedAtTargetMs[index] = -1L;
+    reindex(index, null);
+    markDirty(index, FleetChanges.STATUS);
     return true;
   }
 
-  public List<VehicleSnapshot> advanceAll(MovementModel model, double deltaSeconds) {
-    List<VehicleSnapshot> list = new ArrayList<>(vehicles.size());
-    for (VehicleState state : vehicles.values()) {
-      list.add(state.advance(model, deltaSeconds));
+  public int shardCount() {
+    return shards.length;
+  }
+
+  /** Arrete les workers des shards ; la flotte ne doit plus avancer ensuite. */
+  public void close() {
+    if (pool != null) {
+      pool.shutdown();
     }
-    return list;
   }
 
-  public boolean startReturnWithRoute(String immatriculation, RoutePlan returnPlan) {
-    VehicleState state = vehicles.get(immatriculation);
-    if (state == null) {
+  /**
+   * Deplace tous les vehicules d'un pas, applique les arrivees (sur intervention ou a la base) et
+   * retourne le flux des vehicules modifies ou echus depuis le tick precedent. La transition
+   * appliquee est reportee dans {@link VehicleSnapshot#transition()}.
+   */
+  public synchronized FleetChanges advanceAll(
+      MovementModel model, double deltaSeconds, long nowMs) {
+    // Une transition ne vaut que pour le tick qui l'a produite ; un vehicule sorti de
+    // l'ensemble actif ne repasse plus par les shards pour l'effacer.
+    for (int k = 0; k < changes.size(); k++) {
+      transitions[changes.vehicleAt(k)] = (byte) VehicleTransition.NONE.ordinal();
+    }
+    lastTickMs = nowMs;
+    startPendingPlaybacks(model, nowMs);
+    double step = Math.max(0.0, model.speedMetersPerSecond() * deltaSeconds);
+    for (ShardTask shard : shards) {
+      shard.prepare(model, deltaSeconds, step, nowMs);
+    }
+    if (pool == null) {
+      shards[0].compute();
+    } else {
+      allShards.reinitialize();
+      pool.invoke(allShards);
+    }
+    reindexActive(model);
+    collectChanges(nowMs);
+    for (ShardTask shard : shards) {
+      drain(shard.touched, shard.touchedCount);
+      shard.touchedCount = 0;
+    }
+    return changes;
+  }
+
+  /**
+   * Retourne le flux des vehicules modifies ou echus sans deplacer la flotte, pour un moteur qui
+   * deplace chaque vehicule a la demande via {@link #advanceVehicle}.
+   */
+  public synchronized FleetChanges collectChanges(long nowMs) {
+    lastTickMs = nowMs;
+    wakeWheel.expire(nowMs, markDue);
+    changes.clear();
+    drain(dirtyVehicles, dirtyCount);
+    dirtyCount = 0;
+    return changes;
+  }
+
+  /**
+   * Deplace un seul vehicule de {@code deltaSeconds} et applique sa transition d'arrivee. Le
+   * vehicule n'est pas marque comme modifie : l'appelant le traite immediatement.
+   */
+  public synchronized VehicleTransition advanceVehicle(
+      int index, MovementModel model, double deltaSeconds, long nowMs) {
+    if (isUnknown(index)) {
+      return VehicleTransition.NONE;
+    }
+    double step = Math.max(0.0, model.speedMetersPerSecond() * deltaSeconds);
+    advance(index, model, deltaSeconds, step);
+    VehicleTransition transition = applyTransition(index, model, nowMs);
+    transitions[index] = (byte) transition.ordinal();
+    reindex(index, model);
+    grid.update(index);
+    return transition;
+  }
+
+  /**
+   * Vehicules dans le status donne a moins de {@code radiusMeters} du point, du plus proche au
+   * plus loin.
+   *
+   * <p>Prend le verrou de la flotte, comme le tick : la requete attend la fin d'un {@link
+   * #advanceAll} en cours et le retarde pendant son parcours de la grille. A appeler avec
+   * parcimonie depuis un autre thread que celui du tick.
+   */
+  public synchronized int[] withinRadius(
+      GeoPoint center, double radiusMeters, VehicleStatus status) {
+    byte code = (byte) status.ordinal();
+    return grid.withinRadius(
+        center.latitude(), center.longitude(), radiusMeters, i -> statuses[i] == code);
+  }
+
+  /**
+   * Les {@code count} vehicules du status donne les plus proches du point, du plus proche. Prend
+   * le verrou de la flotte, comme {@link #withinRadius}.
+   */
+  public synchronized int[] nearest(GeoPoint center, int count, VehicleStatus status) {
+    byte code = (byte) status.ordinal();
+    return grid.nearest(center.latitude(), center.longitude(), count, i -> statuses[i] == code);
+  }
+
+  /** Nombre de vehicules dans le status donne, en temps constant. */
+  public synchronized int countByStatus(VehicleStatus status) {
+    return statusCounts[status.ordinal()];
+  }
+
+  /** Nombre de vehicules parcourus par le tick. */
+  public synchronized int activeCount() {
+    return active.cardinality();
+  }
+
+  /** Indique si le vehicule se deplace encore : trajet en cours, cible ou base non atteinte. */
+  public synchronized boolean isMoving(int index, MovementModel model) {
+    if (isUnknown(index) || Double.isNaN(latitudes[index])) {
       return false;
     }
-    state.startReturnWithRoute(returnPlan);
+    RoutePlan plan = routePlans[index];
+    if (plan != null && !plan.isComplete()) {
+      return true;
+    }
+    if (!Double.isNaN(targetLatitudes[index])) {
+      return !model.isAtTarget(
+          latitudes[index], longitudes[index], targetLatitudes[index], targetLongitudes[index]);
+    }
+    return !Double.isNaN(baseLatitudes[index])
+        && !model.isAtTarget(
+            latitudes[index], longitudes[index], baseLatitudes[index], baseLongitudes[index]);
+  }
+
+  /**
+   * Borne inferieure du temps, en secondes, avant que le vehicule puisse declencher une arrivee
+   * (sur intervention s'il est engage, a la base s'il rentre) : quel que soit le trajet, la
+   * distance a vol d'oiseau ne diminue pas plus vite que la vitesse. Infini si aucune arrivee
+   * n'est attendue.
+   */
+  public synchronized double secondsToArrival(int index, MovementModel model) {
+    if (isUnknown(index)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    byte goal = goalOf(index);
+    double speed = model.speedMetersPerSecond();
+    if (goal == GOAL_NONE || speed <= 0.0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double distance =
+        model.distanceMeters(
+            latitudes[index],
+            longitudes[index],
+            goalLatitude(index, goal),
+            goalLongitude(index, goal));
+    return Math.max(0.0, distance - model.epsilonMeters()) / speed;
+  }
+
+  public synchronized boolean startReturnWithRoute(int index, RoutePlan returnPlan) {
+    if (isUnknown(index)) {
+      return false;
+    }
+    stopPlayback(index);
+    routePlans[index] = returnPlan;
+    routeEpochs[index]++;
+    schedulePlayback(index);
+    targetLatitudes[index] = baseLatitudes[index];
+    targetLongitudes[index] = baseLongitudes[index];
+    statuses[index] = (byte) VehicleStatus.RETOUR.ordinal();
+    arrivedAtTargetMs[index] = -1L;
+    reindex(index, null);
+    markDirty(index, FleetChanges.STATUS | FleetChanges.ASSIGNMENT);
+    return true;
+  }
+
+  /** Epoque de la mission en cours du vehicule, a rappeler a {@link #spliceRoute}. */
+  public synchronized int routeEpoch(int index) {
+    return isUnknown(index) ? -1 : routeEpochs[index];
+  }
+
+  /**
+   * Raccorde un trajet calcule en tache de fond, depuis la position atteinte entre-temps (voir
+   * {@link RoutePlan#rejoin}). Ignore si la mission a change depuis {@code epoch}.
+   *
+   * @return {@code true} si le trajet a ete raccorde
+   */
+  public synchronized boolean spliceRoute(int index, int epoch, RoutePlan plan) {
+    if (isUnknown(index) || plan == null || routeEpochs[index] != epoch) {
+      return false;
+    }
+    stopPlayback(index);
+    if (!Double.isNaN(latitudes[index])) {
+      plan.rejoin(latitudes[index], longitudes[index]);
+    }
+    routePlans[index] = plan;
+    schedulePlayback(index);
+    reindex(index, null);
+    markDirty(index, FleetChanges.ASSIGNMENT);
+    return true;
+  }
+
+  /**
+   * Garde la route de retour calculee a l'avance pour la mission {@code epoch} ; ignoree si le
+   * vehicule a change de mission depuis.
+   */
+  public synchronized boolean attachReturnRoute(int index, int epoch, RoutePlan plan) {
+    if (isUnknown(index) || plan == null || routeEpochs[index] != epoch) {
+      return false;
+    }
+    returnRoutes[index] = plan;
     return true;
   }
+
+  /** Retire et retourne la route de retour prechargee, ou {@code null} si elle n'est pas prete. */
+  public synchronized RoutePlan takeReturnRoute(int index) {
+    if (isUnknown(index)) {
+      return null;
+    }
+    RoutePlan plan = returnRoutes[index];
+    returnRoutes[index] = null;
+    return plan;
+  }
+
+  private void advanceShard(ShardTask shard) {
+    ArrivalBatch arrivals = shard.arrivals;
+    arrivals.clear();
+    // L'ensemble actif n'est que lu pendant les shards, il est mis a jour ensuite par
+    // reindexActive : deux shards peuvent partager un mot du BitSet.
+    for (int i = active.nextSetBit(shard.from);
+        i >= 0 && i < shard.to;
+        i = active.nextSetBit(i + 1)) {
+      double latitude = latitudes[i];
+      double longitude = longitudes[i];
+      advance(i, shard.model, shard.deltaSeconds, shard.step);
+      if (latitude != latitudes[i] || longitude != longitudes[i]) {
+        shard.mark(i, FleetChanges.POSITION);
+      }
+
+      byte goal = goalOf(i);
+      if (goal != GOAL_NONE) {
+        arrivals.add(
+            i, goal, latitudes[i], longitudes[i], goalLatitude(i, goal), goalLongitude(i, goal));
+      }
+    }
+
+    // Les controles d'arrivee du shard sont evalues en une passe sur des colonnes contigues.
+    arrivals.evaluate(shard.model);
+    for (int k = 0; k < arrivals.size; k++) {
+      if (!arrivals.atGoal[k]) {
+        continue;
+      }
+      int i = arrivals.vehicles[k];
+      VehicleTransition transition = applyArrival(i, arrivals.goals[k], shard.nowMs);
+      transitions[i] = (byte) transition.ordinal();
+      if (transition == VehicleTransition.ARRIVED_AT_BASE) {
+        shard.mark(i, FleetChanges.STATUS | FleetChanges.ASSIGNMENT);
+      } else {
+        shard.mark(i, FleetChanges.STATUS);
+      }
+    }
+  }
+
+  /**
+   * Reporte dans les index par status les transitions appliquees par les shards, et retire de
+   * l'ensemble actif les vehicules disponibles revenus a leur base.
+   */
+  private void reindexActive(MovementModel model) {
+    for (int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1)) {
+      if (statuses[i] != indexedStatuses[i]
+          || statuses[i] == (byte) VehicleStatus.DISPONIBLE.ordinal()) {
+        reindex(i, model);
+      }
+    }
+  }
+
+  /**
+   * Met a jour l'appartenance du vehicule a son index de status et a l'ensemble actif.
+   *
+   * @param model modele pour la tolerance d'arrivee a la base, ou {@code null} pour une
+   *     comparaison exacte (hors tick)
+   */
+  private void reindex(int index, MovementModel model) {
+    byte status = statuses[index];
+    byte previous = indexedStatuses[index];
+    if (status != previous) {
+      statusMembers[previous].clear(index);
+      statusCounts[previous]--;
+      statusMembers[status].set(index);
+      statusCounts[status]++;
+      indexedStatuses[index] = status;
+    }
+    active.set(index, needsAdvance(index, model));
+  }
+
+  private boolean needsAdvance(int index, MovementModel model) {
+    if (playing.get(index)) {
+      return false;
+    }
+    VehicleStatus status = STATUSES[statuses[index]];
+    if (status == VehicleStatus.ENGAGE || status == VehicleStatus.RETOUR) {
+      return true;
+    }
+    if (status != VehicleStatus.DISPONIBLE || Double.isNaN(latitudes[index])) {
+      return false;
+    }
+    RoutePlan plan = routePlans[index];
+    if ((plan != null && !plan.isComplete()) || !Double.isNaN(targetLatitudes[index])) {
+      return true;
+    }
+    if (Double.isNaN(baseLatitudes[index])) {
+      return false;
+    }
+    if (model == null) {
+      return latitudes[index] != baseLatitudes[index]
+          || longitudes[index] != baseLongitudes[index];
+    }
+    return !model.isAtTarget(
+        latitudes[index], longitudes[index], baseLatitudes[index], baseLongitudes[index]);
+  }
+
+  private void onWake(int index) {
+    markDirty(index, FleetChanges.DUE);
+    if (playing.get(index) && routePlans[index].playbackEndMs() <= lastTickMs) {
+      finishPlayback(index);
+    }
+  }
+
+  private void schedulePlayback(int index) {
+    if (playbackMode == RoutePlaybackMode.LAZY && routePlans[index] != null) {
+      pendingPlayback.set(index);
+    }
+  }
+
+  /**
+   * Demarre la lecture des trajets affectes depuis le tick precedent, a la vitesse du modele si
+   * le trajet n'a pas de duree annoncee.
+   */
+  private void startPendingPlaybacks(MovementModel model, long nowMs) {
+    for (int i = pendingPlayback.nextSetBit(0); i >= 0; i = pendingPlayback.nextSetBit(i + 1)) {
+      RoutePlan plan = routePlans[i];
+      if (plan == null || plan.isComplete() || Double.isNaN(latitudes[i])) {
+        continue;
+      }
+      plan.startPlayback(
+          latitudes[i],
+          longitudes[i],
+          nowMs,
+          model.speedMetersPerSecond(),
+          model.distanceKernel());
+      playing.set(i);
+      active.clear(i);
+      wakeWheel.schedule(i, Math.min(wakeWheel.deadline(i), plan.playbackEndMs()));
+    }
+    pendingPlayback.clear();
+  }
+
+  /** Fige la position lue du trajet en cours avant qu'il ne soit remplace. */
+  private void stopPlayback(int index) {
+    if (playing.get(index)) {
+      routePlans[index].positionAt(lastTickMs, latitudes, longitudes, index);
+      playing.clear(index);
+    }
+    pendingPlayback.clear(index);
+  }
+
+  /** Place le vehicule en fin de trajet et le rend au pas normal pour le dernier troncon. */
+  private void finishPlayback(int index) {
+    RoutePlan plan = routePlans[index];
+    plan.positionAt(plan.playbackEndMs(), latitudes, longitudes, index);
+    routePlans[index] = null;
+    playing.clear(index);
+    markDirty(index, FleetChanges.POSITION);
+    reindex(index, null);
+  }
+
+  private void markDirty(int index, int flags) {
+    if (dirtyFlags[index] == 0) {
+      dirtyVehicles[dirtyCount++] = index;
+    }
+    dirtyFlags[index] |= (byte) flags;
+  }
+
+  private void drain(int[] vehicles, int count) {
+    for (int k = 0; k < count; k++) {
+      int index = vehicles[k];
+      changes.add(index, dirtyFlags[index]);
+      dirtyFlags[index] = 0;
+      grid.update(index);
+    }
+  }
+
+  private VehicleTransition applyTransition(int i, MovementModel model, long nowMs) {
+    byte goal = goalOf(i);
+    if (goal == GOAL_NONE
+        || !model.isAtTarget(
+            latitudes[i], longitudes[i], goalLatitude(i, goal), goalLongitude(i, goal))) {
+      return VehicleTransition.NONE;
+    }
+    return applyArrival(i, goal, nowMs);
+  }
+
+  /** Applique l'arrivee d'un vehicule a sa destination {@code goal} (voir {@link #goalOf}). */
+  private VehicleTransition applyArrival(int i, byte goal, long nowMs) {
+    if (goal == GOAL_TARGET) {
+      if (arrivedAtTargetMs[i] < 0) {
+        arrivedAtTargetMs[i] = nowMs;
+        statuses[i] = (byte) VehicleStatus.SUR_INTERVENTION.ordinal();
+      }
+      return VehicleTransition.ARRIVED_AT_TARGET;
+    }
+    clearTarget(i);
+    routePlans[i] = null;
+    routeEpochs[i]++;
+    returnRoutes[i] = null;
+    incidentPhaseIds[i] = null;
+    statuses[i] = (byte) VehicleStatus.DISPONIBLE.ordinal();
+    arrivedAtTargetMs[i] = -1L;
+    return VehicleTransition.ARRIVED_AT_BASE;
+  }
+
+  /**
+   * Destination dont l'atteinte declenche une transition : la cible d'un vehicule engage sur une
+   * phase, la base d'un vehicule qui rentre, aucune sinon.
+   */
+  private byte goalOf(int i) {
+    if (Double.isNaN(latitudes[i])) {
+      return GOAL_NONE;
+    }
+    VehicleStatus status = STATUSES[statuses[i]];
+    if (status == VehicleStatus.ENGAGE
+        && incidentPhaseIds[i] != null
+        && !Double.isNaN(targetLatitudes[i])) {
+      return GOAL_TARGET;
+    }
+    if (status == VehicleStatus.RETOUR && !Double.isNaN(baseLatitudes[i])) {
+      return GOAL_BASE;
+    }
+    return GOAL_NONE;
+  }
+
+  private double goalLatitude(int i, byte goal) {
+    return goal == GOAL_TARGET ? targetLatitudes[i] : baseLatitudes[i];
+  }
+
+  private double goalLongitude(int i, byte goal) {
+    return goal == GOAL_TARGET ? targetLongitudes[i] : baseLongitudes[i];
+  }
+
+  private void advance(int i, MovementModel model, double deltaSeconds, double step) {
+    if (Double.isNaN(latitudes[i])) {
+      return;
+    }
+    RoutePlan plan = routePlans[i];
+    if (plan != null && !plan.isComplete()) {
+      plan.advance(latitudes, longitudes, i, step, model.distanceKernel());
+      if (plan.isComplete()) {
+        routePlans[i] = null;
+      }
+      return;
+    }
+
+    double targetLat = targetLatitudes[i];
+    double targetLon = targetLongitudes[i];
+    if (Double.isNaN(targetLat)) {
+      if (Double.isNaN(baseLatitudes[i])
+          || model.isAtTarget(latitudes[i], longitudes[i], baseLatitudes[i], baseLongitudes[i])) {
+        return;
+      }
+      targetLat = baseLatitudes[i];
+      targetLon = baseLongitudes[i];
+    }
+    model.move(latitudes, longitudes, i, targetLat, targetLon, deltaSeconds);
+  }
+
+  private boolean isUnknown(int index) {
+    return index < 0 || index >= size;
+  }
+
+  private void setTarget(int index, GeoPoint target) {
+    if (target == null) {
+      clearTarget(index);
+      return;
+    }
+    targetLatitudes[index] = target.latitude();
+    targetLongitudes[index] = target.longitude();
+  }
+
+  private void clearTarget(int index) {
+    targetLatitudes[index] = Double.NaN;
+    targetLongitudes[index] = Double.NaN;
+  }
+
+  private VehicleSnapshot snapshotAt(int index) {
+    if (playing.get(index)) {
+      routePlans[index].positionAt(lastTickMs, latitudes, longitudes, index);
+      grid.update(index);
+    }
+    return new VehicleSnapshot(
+        immatriculations[index],
+        point(latitudes[index], longitudes[index]),
+        point(baseLatitudes[index], baseLongitudes[index]),
+        point(targetLatitudes[index], targetLongitudes[index]),
+        incidentPhaseIds[index],
+        STATUSES[statuses[index]],
+        arrivedAtTargetMs[index],
+        TRANSITIONS[transitions[index]]);
+  }
+
+  private static double meanLatitude(double[] values) {
+    double sum = 0.0;
+    int count = 0;
+    for (double value : values) {
+      if (!Double.isNaN(value)) {
+        sum += value;
+        count++;
+      }
+    }
+    return count == 0 ? 0.0 : sum / count;
+  }
+
+  private static GeoPoint point(double latitude, double longitude) {
+    return Double.isNaN(latitude) ? null : new GeoPoint(latitude, longitude);
+  }
+
+  /** Plage d'index fixe traitee par un meme worker a chaque tick. */
+  @SuppressWarnings("serial") // Tache interne au pool, jamais serialisee.
+  private final class ShardTask extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final int[] touched;
+    private final ArrivalBatch arrivals;
+    private int touchedCount;
+    private MovementModel model;
+    private double deltaSeconds;
+    private double step;
+    private long nowMs;
+
+    private ShardTask(int from, int to) {
+      this.from = from;
+      this.to = to;
+      this.touched = new int[to - from];
+      this.arrivals = new ArrivalBatch(to - from);
+    }
+
+    private void prepare(MovementModel model, double deltaSeconds, double step, long nowMs) {
+      reinitialize();
+      this.model = model;
+      this.deltaSeconds = deltaSeconds;
+      this.step = step;
+      this.nowMs = nowMs;
+    }
+
+    /** Equivalent de markDirty limite a la plage du shard, sans partage entre workers. */
+    private void mark(int index, int flags) {
+      if (dirtyFlags[index] == 0) {
+        touched[touchedCount++] = index;
+      }
+      dirtyFlags[index] |= (byte) flags;
+    }
+
+    @Override
+    protected void compute() {
+      advanceShard(this);
+    }
+  }
 }
@@ -0,0 +1,47 @@
+package cpe.simulator.vehicles.core;
+
+/**
+ * Flux des vehicules a traiter apres un tick : ceux dont la position, le status ou l'affectation a
+ * change, et ceux dont l'echeance de telemetrie est atteinte. L'instance est reutilisee d'un tick a
+ * l'autre par la {@link Fleet} et n'est valide que jusqu'au tick suivant.
+ */
+public final class FleetChanges {
+
+  public static final int POSITION = 1;
+  public static final int STATUS = 1 << 1;
+  public static final int ASSIGNMENT = 1 << 2;
+  public static final int DUE = 1 << 3;
+
+  private final int[] vehicles;
+  private final byte[] flags;
+  private int size;
+
+  FleetChanges(int capacity) {
+    this.vehicles = new int[capacity];
+    this.flags = new byte[capacity];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Index du vehicule (voir {@link Fleet#snapshot(int)}) a la position {@code k} du flux. */
+  public int vehicleAt(int k) {
+    return vehicles[k];
+  }
+
+  /** Combinaison de {@link #POSITION}, {@link #STATUS}, {@link #ASSIGNMENT} et {@link #DUE}. */
+  public int flagsAt(int k) {
+    return flags[k];
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  void add(int vehicle, int vehicleFlags) {
+    vehicles[size] = vehicle;
+    flags[size] = (byte) vehicleFlags;
+    size++;
+  }
+}
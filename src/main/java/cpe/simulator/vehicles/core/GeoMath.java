@@ -10,10 +10,15 @@ public final class GeoMath {
   private GeoMath() {}
 
   public static double distanceMeters(GeoPoint a, GeoPoint b) {
-    double lat1 = Math.toRadians(a.latitude());
-    double lat2 = Math.toRadians(b.latitude());
+    return distanceMeters(a.latitude(), a.longitude(), b.latitude(), b.longitude());
+  }
+
+  public static double distanceMeters(
+      double lat1Deg, double lon1Deg, double lat2Deg, double lon2Deg) {
+    double lat1 = Math.toRadians(lat1Deg);
+    double lat2 = Math.toRadians(lat2Deg);
     double deltaLat = lat2 - lat1;
-    double deltaLon = Math.toRadians(b.longitude() - a.longitude());
+    double deltaLon = Math.toRadians(lon2Deg - lon1Deg);
 
     double sinLat = Math.sin(deltaLat / 2.0);
     double sinLon = Math.sin(deltaLon / 2.0);
@@ -37,4 +42,51 @@ public final class GeoMath {
     double newLon = from.longitude() + (to.longitude() - from.longitude()) * fraction;
     return new GeoPoint(newLat, newLon);
   }
+
+  /**
+   * Variante en place de {@link #moveTowards(GeoPoint, GeoPoint, double)} : deplace la position
+   * {@code index} des colonnes vers la cible sans allouer.
+   *
+   * @return la distance restante jusqu'a la cible apres le deplacement
+   */
+  public static double moveTowards(
+      double[] latitudes,
+      double[] longitudes,
+      int index,
+      double toLat,
+      double toLon,
+      double stepMeters) {
+    return moveTowards(
+        DistanceKernel.HAVERSINE, latitudes, longitudes, index, toLat, toLon, stepMeters);
+  }
+
+  /**
+   * Variante avec un calcul de distance choisi ; l'interpolation reste lineaire en degres, ce qui
+   * ne change rien a l'echelle d'un pas.
+   */
+  public static double moveTowards(
+      DistanceKernel kernel,
+      double[] latitudes,
+      double[] longitudes,
+      int index,
+      double toLat,
+      double toLon,
+      double stepMeters) {
+    double fromLat = latitudes[index];
+    double fromLon = longitudes[index];
+    double distance = kernel.distanceMeters(fromLat, fromLon, toLat, toLon);
+    if (distance <= 0.0 || stepMeters <= 0.0) {
+      return distance;
+    }
+    if (stepMeters >= distance) {
+      latitudes[index] = toLat;
+      longitudes[index] = toLon;
+      return 0.0;
+    }
+
+    double fraction = stepMeters / distance;
+    latitudes[index] = fromLat + (toLat - fromLat) * fraction;
+    longitudes[index] = fromLon + (toLon - fromLon) * fraction;
+    return distance - stepMeters;
+  }
 }
@@ -1,35 +1,34 @@
 package cpe.simulator.vehicles.core;
 
 import cpe.simulator.vehicles.domain.GeoPoint;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Coordonne les vehicules assignes a une meme phase d'incident.
  * Attend que tous les vehicules arrivent avant de demarrer le timer de depart.
+ * Les vehicules sont designes par leur index dans la {@link Fleet}.
  */
 public final class IncidentCoordinator {
 
   private final Map<String, PhaseState> phases = new HashMap<>();
 
   private static final class PhaseState {
-    private final Set<String> assigned = new HashSet<>();
-    private final Set<String> arrived = new HashSet<>();
+    private final BitSet assigned = new BitSet();
+    private final BitSet arrived = new BitSet();
     private long allArrivedTimestamp = -1L;
-    private String lastArrivedVehicle;
+    private int lastArrivedVehicle = -1;
     private GeoPoint target;
   }
 
   /** Enregistre un vehicule comme assigne a une phase d'incident. */
-  public synchronized void registerVehicle(
-      String immatriculation, String incidentPhaseId, GeoPoint target) {
+  public synchronized void registerVehicle(int vehicle, String incidentPhaseId, GeoPoint target) {
     if (incidentPhaseId == null) {
       return;
     }
     PhaseState state = phases.computeIfAbsent(incidentPhaseId, k -> new PhaseState());
-    state.assigned.add(immatriculation);
+    state.assigned.set(vehicle);
     if (state.target == null) {
       state.target = target;
     }
@@ -37,13 +36,13 @@ public final class IncidentCoordinator {
 
   /** Marque un vehicule comme arrive sur la phase. */
   public synchronized void markArrived(
-      String immatriculation, String incidentPhaseId, long nowMs, GeoPoint target) {
+      int vehicle, String incidentPhaseId, long nowMs, GeoPoint target) {
     PhaseState state = phases.get(incidentPhaseId);
     if (state == null) {
       return;
     }
-    state.arrived.add(immatriculation);
-    state.lastArrivedVehicle = immatriculation;
+    state.arrived.set(vehicle);
+    state.lastArrivedVehicle = vehicle;
     if (state.target == null) {
       state.target = target;
     }
@@ -53,10 +52,10 @@ public final class IncidentCoordinator {
     }
   }
 
-  /** Retourne l'immatriculation du dernier vehicule arrive sur la phase. */
-  public synchronized String getLastArrivedVehicle(String incidentPhaseId) {
+  /** Retourne l'index du dernier vehicule arrive sur la phase, ou -1. */
+  public synchronized int getLastArrivedVehicle(String incidentPhaseId) {
     PhaseState state = phases.get(incidentPhaseId);
-    return state == null ? null : state.lastArrivedVehicle;
+    return state == null ? -1 : state.lastArrivedVehicle;
   }
 
   /** Verifie si tous les vehicules assignes sont arrives. */
@@ -66,7 +65,9 @@ public final class IncidentCoordinator {
   }
 
   private static boolean areAllArrived(PhaseState state) {
-    return state.arrived.containsAll(state.assigned);
+    BitSet missing = (BitSet) state.assigned.clone();
+    missing.andNot(state.arrived);
+    return missing.isEmpty();
   }
 
   /** Verifie si le temps sur site est ecoule et tous peuvent partir. */
@@ -78,10 +79,10 @@ public final class IncidentCoordinator {
     return nowMs - state.allArrivedTimestamp >= onSiteDurationMs;
   }
 
-  /** Retourne les vehicules assignes a une phase. */
-  public synchronized Set<String> getAssignedVehicles(String incidentPhaseId) {
+  /** Retourne les index des vehicules assignes a une phase. */
+  public synchronized int[] getAssignedVehicles(String incidentPhaseId) {
     PhaseState state = phases.get(incidentPhaseId);
-    return state != null ? new HashSet<>(state.assigned) : new HashSet<>();
+    return state != null ? state.assigned.stream().toArray() : new int[0];
   }
 
   public synchronized GeoPoint getTarget(String incidentPhaseId) {
@@ -95,13 +96,13 @@ public final class IncidentCoordinator {
   }
 
   /** Retire un vehicule d'une phase (par exemple s'il retourne a la base). */
-  public synchronized void unregisterVehicle(String immatriculation, String incidentPhaseId) {
+  public synchronized void unregisterVehicle(int vehicle, String incidentPhaseId) {
     PhaseState state = phases.get(incidentPhaseId);
     if (state == null) {
       return;
     }
-    state.assigned.remove(immatriculation);
-    state.arrived.remove(immatriculation);
+    state.assigned.clear(vehicle);
+    state.arrived.clear(vehicle);
     if (state.assigned.isEmpty()) {
       phases.remove(incidentPhaseId);
     }
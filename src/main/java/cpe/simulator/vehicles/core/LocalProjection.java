@@ -0,0 +1,75 @@
+package cpe.simulator.vehicles.core;
+
+/**
+ * Distance equirectangulaire autour d'une latitude de reference : une racine carree et quelques
+ * multiplications au lieu des sin, cos et atan2 de la haversine.
+ *
+ * <p>Le cosinus de la latitude moyenne des deux points est obtenu par un developpement de Taylor
+ * autour de la reference precalculee, sans appel trigonometrique. Sur une zone de 0,4 degre de
+ * latitude par 0,6 degre de longitude centree sur la reference (Lyon/Villeurbanne), l'ecart
+ * relatif a la haversine reste sous 1e-5. L'erreur croit avec l'eloignement de la reference : a
+ * ne pas utiliser au-dela de quelques centaines de kilometres.
+ *
+ * <p>Le calcul groupe passe par l'API Vector ({@code jdk.incubator.vector}) quand le module est
+ * charge ({@code --add-modules jdk.incubator.vector}), avec exactement les memes operations que
+ * le calcul unitaire ; sinon il retombe sur la boucle scalaire.
+ */
+public final class LocalProjection implements DistanceKernel {
+
+  static final double EARTH_RADIUS_METERS = 6_371_000.0;
+  private static final boolean VECTORIZED =
+      ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+  private final double referenceLatRad;
+  private final double cosReference;
+  private final double sinReference;
+
+  public LocalProjection(double referenceLatitudeDeg) {
+    this.referenceLatRad = Math.toRadians(referenceLatitudeDeg);
+    this.cosReference = Math.cos(referenceLatRad);
+    this.sinReference = Math.sin(referenceLatRad);
+  }
+
+  @Override
+  public double distanceMeters(double lat1Deg, double lon1Deg, double lat2Deg, double lon2Deg) {
+    double offset = Math.toRadians((lat1Deg + lat2Deg) * 0.5) - referenceLatRad;
+    double offset2 = offset * offset;
+    double cosMean =
+        cosReference * (1.0 - offset2 * 0.5) - sinReference * offset * (1.0 - offset2 / 6.0);
+    double dx = Math.toRadians(lon2Deg - lon1Deg) * cosMean;
+    double dy = Math.toRadians(lat2Deg - lat1Deg);
+    return EARTH_RADIUS_METERS * Math.sqrt(dx * dx + dy * dy);
+  }
+
+  @Override
+  public void distancesMeters(
+      double[] lat1Deg,
+      double[] lon1Deg,
+      double[] lat2Deg,
+      double[] lon2Deg,
+      int count,
+      double[] out) {
+    int done = 0;
+    if (VECTORIZED) {
+      done =
+          VectorDistance.localProjection(
+              referenceLatRad,
+              cosReference,
+              sinReference,
+              lat1Deg,
+              lon1Deg,
+              lat2Deg,
+              lon2Deg,
+              count,
+              out);
+    }
+    for (int k = done; k < count; k++) {
+      out[k] = distanceMeters(lat1Deg[k], lon1Deg[k], lat2Deg[k], lon2Deg[k]);
+    }
+  }
+
+  /** Indique si le calcul groupe est vectorise (module {@code jdk.incubator.vector} charge). */
+  public static boolean isVectorized() {
+    return VECTORIZED;
+  }
+}
@@ -0,0 +1,9 @@
+package cpe.simulator.vehicles.core;
+
+/** Comportement du cadenceur lorsqu'un tick depasse son echeance. */
+public enum MissedTickPolicy {
+  /** Les ticks manques sont abandonnes, le tick suivant couvre tout le temps ecoule. */
+  SKIP,
+  /** Les ticks manques sont rejoues sans attente, chacun avec le pas nominal. */
+  CATCH_UP
+}
@@ -7,16 +7,35 @@ public final class MovementModel {
 
   private final double speedMps;
   private final double epsilonMeters;
+  private final DistanceKernel distanceKernel;
 
   public MovementModel(double speedMps, double epsilonMeters) {
+    this(speedMps, epsilonMeters, DistanceKernel.HAVERSINE);
+  }
+
+  public MovementModel(double speedMps, double epsilonMeters, DistanceKernel distanceKernel) {
     this.speedMps = speedMps;
     this.epsilonMeters = epsilonMeters;
+    this.distanceKernel = distanceKernel;
   }
 
   public double speedMetersPerSecond() {
     return speedMps;
   }
 
+  public double epsilonMeters() {
+    return epsilonMeters;
+  }
+
+  /** Calcul de distance utilise pour les deplacements et les arrivees. */
+  public DistanceKernel distanceKernel() {
+    return distanceKernel;
+  }
+
+  public double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+    return distanceKernel.distanceMeters(lat1, lon1, lat2, lon2);
+  }
+
   public GeoPoint move(GeoPoint current, GeoPoint target, double deltaSeconds) {
     if (target == null || current == null) {
       return current;
@@ -28,10 +47,49 @@ public final class MovementModel {
     return GeoMath.moveTowards(current, target, step);
   }
 
+  /** Variante en place de {@link #move} sur les colonnes de la flotte. */
+  public void move(
+      double[] latitudes,
+      double[] longitudes,
+      int index,
+      double targetLat,
+      double targetLon,
+      double deltaSeconds) {
+    if (isAtTarget(latitudes[index], longitudes[index], targetLat, targetLon)) {
+      return;
+    }
+    double step = Math.max(0.0, speedMps * deltaSeconds);
+    GeoMath.moveTowards(distanceKernel, latitudes, longitudes, index, targetLat, targetLon, step);
+  }
+
   public boolean isAtTarget(GeoPoint current, GeoPoint target) {
     if (current == null || target == null) {
       return true;
     }
-    return GeoMath.distanceMeters(current, target) <= epsilonMeters;
+    return isAtTarget(
+        current.latitude(), current.longitude(), target.latitude(), target.longitude());
+  }
+
+  /**
+   * Version groupee de {@link #isAtTarget(double, double, double, double)} sur les {@code count}
+   * premieres cases des colonnes : remplit les distances puis le masque des vehicules arrives.
+   */
+  public void atTargetBatch(
+      double[] latitudes,
+      double[] longitudes,
+      double[] targetLatitudes,
+      double[] targetLongitudes,
+      int count,
+      double[] distances,
+      boolean[] atTarget) {
+    distanceKernel.distancesMeters(
+        latitudes, longitudes, targetLatitudes, targetLongitudes, count, distances);
+    for (int k = 0; k < count; k++) {
+      atTarget[k] = distances[k] <= epsilonMeters;
+    }
+  }
+
+  public boolean isAtTarget(double lat, double lon, double targetLat, double targetLon) {
+    return distanceKernel.distanceMeters(lat, lon, targetLat, targetLon) <= epsilonMeters;
   }
 }
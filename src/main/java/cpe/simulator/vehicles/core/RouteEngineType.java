@@ -0,0 +1,9 @@
+package cpe.simulator.vehicles.core;
+
+/** Service de calcul des itineraires. */
+public enum RouteEngineType {
+  /** Endpoint {@code /geo/route} de l'API QG. */
+  SDMIS,
+  /** Graphe routier local projete en memoire, sans appel reseau. */
+  LOCAL
+}
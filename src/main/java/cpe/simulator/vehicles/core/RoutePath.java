@@ -0,0 +1,185 @@
+package cpe.simulator.vehicles.core;
+
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Geometrie immuable d'un trajet, partagee entre les vehicules qui le suivent.
+ *
+ * <p>Les points sont ranges en entiers a virgule fixe (degres x 1e7, environ 1 cm) avec la
+ * distance cumulee depuis le premier point : 12 octets par point au lieu d'un {@link GeoPoint}
+ * et de sa reference.
+ *
+ * <p>{@link #intern} rend une instance unique par contenu (points et duree) : les engins envoyes
+ * d'une meme caserne vers une meme intervention partagent une seule copie. La table ne garde que
+ * des references faibles, une geometrie n'est donc conservee que tant qu'un trajet la suit.
+ */
+public final class RoutePath {
+
+  private static final double E7 = 1e7;
+  private static final Map<RoutePath, WeakReference<RoutePath>> INTERNED = new WeakHashMap<>();
+
+  private final int[] latitudesE7;
+  private final int[] longitudesE7;
+  private final double durationSeconds;
+  private final int hash;
+  // Calcule par intern() avant publication, et seulement pour une geometrie nouvelle.
+  private float[] cumulativeMeters;
+
+  private RoutePath(int[] latitudesE7, int[] longitudesE7, double durationSeconds) {
+    this.latitudesE7 = latitudesE7;
+    this.longitudesE7 = longitudesE7;
+    this.durationSeconds = durationSeconds;
+    int h = Arrays.hashCode(latitudesE7);
+    h = 31 * h + Arrays.hashCode(longitudesE7);
+    this.hash = 31 * h + Double.hashCode(durationSeconds);
+  }
+
+  /**
+   * Geometrie partagee correspondant aux points et a la duree donnes.
+   *
+   * @param durationSeconds duree du trajet annoncee par le service de routage, {@code NaN} si
+   *     inconnue
+   */
+  public static RoutePath intern(List<GeoPoint> points, double durationSeconds) {
+    int count = points.size();
+    int[] latitudesE7 = new int[count];
+    int[] longitudesE7 = new int[count];
+    for (int k = 0; k < count; k++) {
+      GeoPoint point = points.get(k);
+      latitudesE7[k] = (int) Math.round(point.latitude() * E7);
+      longitudesE7[k] = (int) Math.round(point.longitude() * E7);
+    }
+    return intern(latitudesE7, longitudesE7, durationSeconds);
+  }
+
+  /**
+   * Variante sur des points deja en virgule fixe (degres x 1e7), par exemple relus sur disque ;
+   * les tableaux sont repris sans copie et ne doivent plus etre modifies.
+   */
+  public static RoutePath intern(int[] latitudesE7, int[] longitudesE7, double durationSeconds) {
+    // Le candidat ne porte que les points et leur empreinte : les longueurs cumulees ne sont
+    // calculees que si la geometrie est nouvelle, hors verrou, puis la table est reverifiee.
+    RoutePath candidate = new RoutePath(latitudesE7, longitudesE7, durationSeconds);
+    RoutePath shared = lookup(candidate);
+    if (shared != null) {
+      return shared;
+    }
+    candidate.measure();
+    synchronized (INTERNED) {
+      shared = lookup(candidate);
+      if (shared != null) {
+        return shared;
+      }
+      INTERNED.put(candidate, new WeakReference<>(candidate));
+      return candidate;
+    }
+  }
+
+  private static RoutePath lookup(RoutePath candidate) {
+    synchronized (INTERNED) {
+      WeakReference<RoutePath> existing = INTERNED.get(candidate);
+      return existing == null ? null : existing.get();
+    }
+  }
+
+  private void measure() {
+    int count = latitudesE7.length;
+    float[] cumulative = new float[count];
+    double total = 0.0;
+    for (int k = 1; k < count; k++) {
+      total +=
+          GeoMath.distanceMeters(latitude(k - 1), longitude(k - 1), latitude(k), longitude(k));
+      cumulative[k] = (float) total;
+    }
+    cumulativeMeters = cumulative;
+  }
+
+  /** Nombre de geometries distinctes encore suivies. */
+  public static int internedCount() {
+    synchronized (INTERNED) {
+      return INTERNED.size();
+    }
+  }
+
+  public int pointCount() {
+    return latitudesE7.length;
+  }
+
+  /** Duree annoncee par le service de routage, {@code NaN} si inconnue. */
+  public double durationSeconds() {
+    return durationSeconds;
+  }
+
+  /** Longueur du premier au dernier point. */
+  public double lengthMeters() {
+    return latitudesE7.length == 0 ? 0.0 : cumulativeMeters[latitudesE7.length - 1];
+  }
+
+  /** Latitude du point {@code k} en degres x 1e7. */
+  public int latitudeE7(int k) {
+    return latitudesE7[k];
+  }
+
+  /** Longitude du point {@code k} en degres x 1e7. */
+  public int longitudeE7(int k) {
+    return longitudesE7[k];
+  }
+
+  double latitude(int k) {
+    return latitudesE7[k] / E7;
+  }
+
+  double longitude(int k) {
+    return longitudesE7[k] / E7;
+  }
+
+  double cumulativeMeters(int k) {
+    return cumulativeMeters[k];
+  }
+
+  /**
+   * Dernier point {@code k} tel que la distance cumulee en {@code k} est au plus {@code along}.
+   * Le segment {@code hint} et le suivant sont essayes d'abord, la dichotomie ne sert qu'aux sauts.
+   */
+  int findSegment(double along, int hint) {
+    int last = latitudesE7.length - 1;
+    for (int k = hint; k < Math.min(hint + 2, last); k++) {
+      if (cumulativeMeters[k] <= along && along < cumulativeMeters[k + 1]) {
+        return k;
+      }
+    }
+    int low = 1;
+    int high = last - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (cumulativeMeters[mid] <= along) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    return other instanceof RoutePath path
+        && hash == path.hash
+        && Double.compare(durationSeconds, path.durationSeconds) == 0
+        && Arrays.equals(latitudesE7, path.latitudesE7)
+        && Arrays.equals(longitudesE7, path.longitudesE7);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
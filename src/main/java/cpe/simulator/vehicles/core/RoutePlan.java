@@ -3,47 +3,199 @@ package cpe.simulator.vehicles.core;
 import cpe.simulator.vehicles.domain.GeoPoint;
 import java.util.List;
 
-/** Trajet pre-calcule a suivre, sous forme de points successifs. */
+/**
+ * Suivi d'un trajet par un vehicule : curseur propre au vehicule sur une {@link RoutePath}
+ * partagee.
+ *
+ * <p>Le trajet est suivi par une distance parcourue ; la position correspondante est retrouvee
+ * par recherche dichotomique puis interpolee sur le segment, sans trigonometrie.
+ *
+ * <p>Comme auparavant, le premier point n'est pas rejoint : le vehicule part de sa position
+ * courante vers le deuxieme point (segment d'approche, mesure au premier pas). Un trajet recu
+ * apres que le vehicule s'est deja deplace peut etre rejoint plus loin ({@link #rejoin}).
+ *
+ * <p>Le trajet peut aussi etre lu en fonction du temps ({@link #startPlayback}) : la distance
+ * parcourue se deduit alors de l'instant demande et de la vitesse, calibree sur la duree annoncee
+ * par le service de routage. Rien n'est calcule entre deux lectures.
+ */
 public final class RoutePlan {
 
-  private final List<GeoPoint> points;
-  private int nextIndex;
+  private final RoutePath path;
+  private boolean started;
+  private double approachLat;
+  private double approachLon;
+  private double approachMeters;
+  private double travelledMeters;
+  private int entry = 1;
+  private int segment = 1;
+  private long playbackStartMs = -1L;
+  private double playbackSpeedMps;
 
   public RoutePlan(List<GeoPoint> points) {
-    this.points = List.copyOf(points);
-    this.nextIndex = this.points.size() > 1 ? 1 : this.points.size();
+    this(points, Double.NaN);
+  }
+
+  /**
+   * @param durationSeconds duree du trajet annoncee par le service de routage, {@code NaN} si
+   *     inconnue
+   */
+  public RoutePlan(List<GeoPoint> points, double durationSeconds) {
+    this(RoutePath.intern(points, durationSeconds));
+  }
+
+  public RoutePlan(RoutePath path) {
+    this.path = path;
+  }
+
+  /** Geometrie suivie, partagee avec les autres vehicules sur le meme trajet. */
+  public RoutePath path() {
+    return path;
   }
 
   public boolean isComplete() {
-    return nextIndex >= points.size();
+    return path.pointCount() <= 1 || (started && travelledMeters >= lengthMeters());
+  }
+
+  public int pointCount() {
+    return path.pointCount();
   }
 
-  public GeoPoint advance(GeoPoint current, double stepMeters) {
-    if (current == null || points.isEmpty() || stepMeters <= 0.0) {
-      return current;
+  /** Duree annoncee par le service de routage, {@code NaN} si inconnue. */
+  public double durationSeconds() {
+    return path.durationSeconds();
+  }
+
+  /** Distance parcourue depuis le premier pas, segment d'approche compris. */
+  public double travelledMeters() {
+    return travelledMeters;
+  }
+
+  /**
+   * Longueur totale a parcourir, segment d'approche compris ; connue seulement apres le premier
+   * pas.
+   */
+  public double lengthMeters() {
+    if (path.pointCount() <= 1) {
+      return 0.0;
     }
+    return approachMeters + path.lengthMeters() - path.cumulativeMeters(entry);
+  }
 
-    double remaining = stepMeters;
-    GeoPoint position = current;
+  /**
+   * Avance la position {@code index} des colonnes le long du trajet, en place.
+   *
+   * @param stepMeters distance a parcourir pendant ce pas
+   * @param kernel calcul de distance du segment d'approche
+   */
+  public void advance(
+      double[] latitudes,
+      double[] longitudes,
+      int index,
+      double stepMeters,
+      DistanceKernel kernel) {
+    if (isComplete() || stepMeters <= 0.0) {
+      return;
+    }
+    start(latitudes[index], longitudes[index], kernel);
+    travelledMeters = Math.min(travelledMeters + stepMeters, lengthMeters());
+    locate(latitudes, longitudes, index);
+  }
 
-    while (remaining > 0.0 && nextIndex < points.size()) {
-      GeoPoint target = points.get(nextIndex);
-      double distance = GeoMath.distanceMeters(position, target);
-      if (distance <= 0.0) {
-        position = target;
-        nextIndex++;
-        continue;
-      }
-      if (remaining < distance) {
-        position = GeoMath.moveTowards(position, target, remaining);
-        remaining = 0.0;
-      } else {
-        position = target;
-        remaining -= distance;
-        nextIndex++;
+  /**
+   * Demarre la lecture du trajet en fonction du temps depuis la position courante. La vitesse est
+   * la longueur du trajet divisee par sa duree annoncee, ou {@code defaultSpeedMps} si la duree
+   * est inconnue.
+   */
+  public void startPlayback(
+      double lat, double lon, long nowMs, double defaultSpeedMps, DistanceKernel kernel) {
+    start(lat, lon, kernel);
+    double routeMeters = path.lengthMeters();
+    playbackSpeedMps =
+        path.durationSeconds() > 0.0 && routeMeters > 0.0
+            ? routeMeters / path.durationSeconds()
+            : defaultSpeedMps;
+    playbackStartMs = nowMs - (long) (travelledMeters / playbackSpeedMps * 1_000.0);
+  }
+
+  public boolean isPlaying() {
+    return playbackStartMs >= 0 && !isComplete();
+  }
+
+  /** Instant de fin de la lecture demarree par {@link #startPlayback}. */
+  public long playbackEndMs() {
+    return playbackStartMs + (long) Math.ceil(lengthMeters() / playbackSpeedMps * 1_000.0);
+  }
+
+  /**
+   * Ecrit dans les colonnes la position lue a l'instant {@code nowMs}, sans rien recalculer
+   * d'autre que la recherche du segment.
+   */
+  public void positionAt(long nowMs, double[] latitudes, double[] longitudes, int index) {
+    double elapsedSeconds = Math.max(0L, nowMs - playbackStartMs) / 1_000.0;
+    travelledMeters = Math.min(elapsedSeconds * playbackSpeedMps, lengthMeters());
+    locate(latitudes, longitudes, index);
+  }
+
+  /**
+   * Avant le premier pas, choisit comme point d'entree le sommet le plus proche de la position
+   * courante parmi ceux que le vehicule a pu depasser en partant tout droit du premier point
+   * (jusqu'a deux fois la distance a vol d'oiseau parcourue). Evite de revenir en arriere quand
+   * le trajet arrive apres le depart.
+   */
+  public void rejoin(double lat, double lon) {
+    if (started || path.pointCount() <= 2) {
+      return;
+    }
+    double budget = 2.0 * GeoMath.distanceMeters(path.latitude(0), path.longitude(0), lat, lon);
+    double limit = path.cumulativeMeters(1) + budget;
+    double best = Double.POSITIVE_INFINITY;
+    for (int k = 1; k < path.pointCount() - 1 && path.cumulativeMeters(k) <= limit; k++) {
+      double distance = GeoMath.distanceMeters(lat, lon, path.latitude(k), path.longitude(k));
+      if (distance < best) {
+        best = distance;
+        entry = k;
       }
     }
+    segment = entry;
+  }
+
+  private void start(double lat, double lon, DistanceKernel kernel) {
+    if (started || path.pointCount() <= 1) {
+      return;
+    }
+    approachLat = lat;
+    approachLon = lon;
+    approachMeters =
+        kernel.distanceMeters(
+            approachLat, approachLon, path.latitude(entry), path.longitude(entry));
+    started = true;
+  }
+
+  /** Ecrit dans les colonnes la position correspondant a la distance parcourue. */
+  private void locate(double[] latitudes, double[] longitudes, int index) {
+    if (travelledMeters < approachMeters) {
+      double fraction = travelledMeters / approachMeters;
+      latitudes[index] = approachLat + (path.latitude(entry) - approachLat) * fraction;
+      longitudes[index] = approachLon + (path.longitude(entry) - approachLon) * fraction;
+      return;
+    }
+
+    int last = path.pointCount() - 1;
+    double along = path.cumulativeMeters(entry) + (travelledMeters - approachMeters);
+    if (along >= path.cumulativeMeters(last)) {
+      segment = last;
+      latitudes[index] = path.latitude(last);
+      longitudes[index] = path.longitude(last);
+      return;
+    }
 
-    return position;
+    segment = path.findSegment(along, segment);
+    double start = path.cumulativeMeters(segment);
+    double length = path.cumulativeMeters(segment + 1) - start;
+    double fraction = length > 0.0 ? (along - start) / length : 0.0;
+    double fromLat = path.latitude(segment);
+    double fromLon = path.longitude(segment);
+    latitudes[index] = fromLat + (path.latitude(segment + 1) - fromLat) * fraction;
+    longitudes[index] = fromLon + (path.longitude(segment + 1) - fromLon) * fraction;
   }
 }
@@ -0,0 +1,12 @@
+package cpe.simulator.vehicles.core;
+
+/** Facon dont la flotte fait suivre leur trajet aux vehicules. */
+public enum RoutePlaybackMode {
+  /** Le vehicule avance le long du trajet a chaque tick. */
+  STEPPED,
+  /**
+   * Le trajet est lu en fonction du temps : la position n'est evaluee qu'a la lecture et
+   * l'arrivee est programmee a l'avance, aucun travail par tick pendant le trajet.
+   */
+  LAZY
+}
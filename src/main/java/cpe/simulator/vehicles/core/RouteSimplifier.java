@@ -0,0 +1,105 @@
+package cpe.simulator.vehicles.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Simplification de polyligne par Douglas-Peucker avec une tolerance en metres.
+ *
+ * <p>Les points sont projetes sur un plan local centre sur le premier point (equirectangulaire),
+ * largement suffisant a l'echelle d'un trajet urbain. Le premier et le dernier point sont toujours
+ * conserves. La recursion est remplacee par une pile d'intervalles pour ne pas dependre de la
+ * longueur du trajet.
+ */
+public final class RouteSimplifier {
+
+  private static final double METERS_PER_DEGREE = 6_371_000.0 * Math.PI / 180.0;
+
+  private RouteSimplifier() {}
+
+  /**
+   * Simplifie des points en virgule fixe (degres x 1e7), par exemple decodes en flux : les points
+   * conserves sont ramenes en tete des tableaux, dans l'ordre. Rien n'est modifie si la tolerance
+   * est nulle ou s'il y a moins de trois points.
+   *
+   * @return nombre de points conserves parmi les {@code count} premiers
+   */
+  public static int simplify(
+      int[] latitudesE7, int[] longitudesE7, int count, double toleranceMeters) {
+    if (toleranceMeters <= 0.0 || count < 3) {
+      return count;
+    }
+
+    double originLat = latitudesE7[0] / 1e7;
+    double originLon = longitudesE7[0] / 1e7;
+    double lonScale = Math.cos(Math.toRadians(originLat)) * METERS_PER_DEGREE;
+    double[] x = new double[count];
+    double[] y = new double[count];
+    for (int k = 0; k < count; k++) {
+      x[k] = (longitudesE7[k] / 1e7 - originLon) * lonScale;
+      y[k] = (latitudesE7[k] / 1e7 - originLat) * METERS_PER_DEGREE;
+    }
+
+    BitSet kept = keptPoints(x, y, toleranceMeters);
+    int size = 0;
+    for (int k = kept.nextSetBit(0); k >= 0; k = kept.nextSetBit(k + 1)) {
+      latitudesE7[size] = latitudesE7[k];
+      longitudesE7[size] = longitudesE7[k];
+      size++;
+    }
+    return size;
+  }
+
+  /** Douglas-Peucker sur les points projetes ; le premier et le dernier sont toujours gardes. */
+  private static BitSet keptPoints(double[] x, double[] y, double toleranceMeters) {
+    int count = x.length;
+    BitSet kept = new BitSet(count);
+    kept.set(0);
+    kept.set(count - 1);
+    double toleranceSquared = toleranceMeters * toleranceMeters;
+    int[] stack = new int[64];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = count - 1;
+    while (top > 0) {
+      int last = stack[--top];
+      int first = stack[--top];
+      int farthest = -1;
+      double farthestSquared = toleranceSquared;
+      for (int k = first + 1; k < last; k++) {
+        double distanceSquared = segmentDistanceSquared(x, y, k, first, last);
+        if (distanceSquared > farthestSquared) {
+          farthestSquared = distanceSquared;
+          farthest = k;
+        }
+      }
+      if (farthest < 0) {
+        continue;
+      }
+      kept.set(farthest);
+      if (top + 4 > stack.length) {
+        stack = Arrays.copyOf(stack, stack.length * 2);
+      }
+      stack[top++] = first;
+      stack[top++] = farthest;
+      stack[top++] = farthest;
+      stack[top++] = last;
+    }
+    return kept;
+  }
+
+  /** Carre de la distance du point {@code k} au segment {@code [a, b]}, dans le plan local. */
+  private static double segmentDistanceSquared(double[] x, double[] y, int k, int a, int b) {
+    double dx = x[b] - x[a];
+    double dy = y[b] - y[a];
+    double lengthSquared = dx * dx + dy * dy;
+    double t = 0.0;
+    if (lengthSquared > 0.0) {
+      t = ((x[k] - x[a]) * dx + (y[k] - y[a]) * dy) / lengthSquared;
+      t = Math.max(0.0, Math.min(1.0, t));
+    }
+    double px = x[a] + t * dx - x[k];
+    double py = y[a] + t * dy - y[k];
+    return px * px + py * py;
+  }
+}
@@ -0,0 +1,154 @@
+package cpe.simulator.vehicles.core;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temps de la simulation : temps reel, temps accelere d'un facteur N, ou temps virtuel qui saute
+ * directement a chaque echeance (aussi vite que possible).
+ *
+ * <p>Tout ce qui depend du temps simule (pas de mouvement, timers sur site, intervalles et
+ * horodatage de la telemetrie) doit lire cette horloge plutot que l'horloge systeme.
+ */
+public abstract class SimulationClock extends Clock {
+
+  private final long originEpochMs;
+
+  /** Visible du paquet pour les horloges pilotees des tests. */
+  SimulationClock(long originEpochMs) {
+    this.originEpochMs = originEpochMs;
+  }
+
+  /** Horloge en temps reel. */
+  public static SimulationClock realTime() {
+    return new Scaled(1.0);
+  }
+
+  /**
+   * Horloge selon le facteur d'acceleration : {@code 1} pour le temps reel, {@code N > 1} pour N
+   * fois plus vite, {@code 0} (ou negatif) pour avancer aussi vite que possible.
+   */
+  public static SimulationClock withTimeScale(double timeScale) {
+    return timeScale > 0.0 ? new Scaled(timeScale) : new Virtual();
+  }
+
+  /** Temps monotone de la simulation, en nanosecondes depuis son demarrage. */
+  public abstract long nanoTime();
+
+  /** Bloque jusqu'a ce que le temps de simulation atteigne {@code deadlineNanos}. */
+  public abstract void sleepUntil(long deadlineNanos) throws InterruptedException;
+
+  /** Facteur entre temps simule et temps reel, infini en mode virtuel. */
+  public abstract double timeScale();
+
+  @Override
+  public long millis() {
+    return originEpochMs + TimeUnit.NANOSECONDS.toMillis(nanoTime());
+  }
+
+  @Override
+  public Instant instant() {
+    return Instant.ofEpochMilli(millis());
+  }
+
+  @Override
+  public ZoneId getZone() {
+    return ZoneOffset.UTC;
+  }
+
+  /** Meme instant simule, presente dans le fuseau donne. */
+  @Override
+  public Clock withZone(ZoneId zone) {
+    return ZoneOffset.UTC.equals(zone) ? this : new Zoned(this, zone);
+  }
+
+  private static final class Zoned extends Clock {
+    private final SimulationClock simulation;
+    private final ZoneId zone;
+
+    private Zoned(SimulationClock simulation, ZoneId zone) {
+      this.simulation = simulation;
+      this.zone = zone;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId other) {
+      return simulation.withZone(other);
+    }
+
+    @Override
+    public long millis() {
+      return simulation.millis();
+    }
+
+    @Override
+    public Instant instant() {
+      return simulation.instant();
+    }
+  }
+
+  private static final class Scaled extends SimulationClock {
+    private final double factor;
+    private final long originNanos;
+
+    private Scaled(double factor) {
+      super(System.currentTimeMillis());
+      this.factor = factor;
+      this.originNanos = System.nanoTime();
+    }
+
+    @Override
+    public long nanoTime() {
+      return (long) ((System.nanoTime() - originNanos) * factor);
+    }
+
+    @Override
+    public void sleepUntil(long deadlineNanos) throws InterruptedException {
+      long remaining = deadlineNanos - nanoTime();
+      if (remaining > 0) {
+        TimeUnit.NANOSECONDS.sleep((long) Math.ceil(remaining / factor));
+      }
+    }
+
+    @Override
+    public double timeScale() {
+      return factor;
+    }
+  }
+
+  private static final class Virtual extends SimulationClock {
+    private volatile long nanos;
+
+    private Virtual() {
+      super(System.currentTimeMillis());
+    }
+
+    @Override
+    public long nanoTime() {
+      return nanos;
+    }
+
+    @Override
+    public void sleepUntil(long deadlineNanos) throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (deadlineNanos > nanos) {
+        nanos = deadlineNanos;
+      }
+    }
+
+    @Override
+    public double timeScale() {
+      return Double.POSITIVE_INFINITY;
+    }
+  }
+}
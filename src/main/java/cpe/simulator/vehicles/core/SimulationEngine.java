@@ -0,0 +1,7 @@
+package cpe.simulator.vehicles.core;
+
+/** Moteur de simulation de la flotte, bloquant jusqu'a l'interruption du thread. */
+public interface SimulationEngine {
+
+  void run();
+}
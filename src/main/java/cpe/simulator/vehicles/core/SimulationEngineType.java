@@ -0,0 +1,12 @@
+package cpe.simulator.vehicles.core;
+
+/** Moteur de simulation a utiliser. */
+public enum SimulationEngineType {
+  /** Tous les vehicules sont deplaces a chaque tick ({@link VehicleSimulator}). */
+  FIXED_STEP,
+  /**
+   * Les vehicules ne sont deplaces qu'a leurs evenements : arrivee, fin sur site, telemetrie
+   * ({@link EventDrivenSimulator}).
+   */
+  EVENT
+}
@@ -0,0 +1,313 @@
+package cpe.simulator.vehicles.core;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Grille uniforme des positions de la flotte, mise a jour a chaque deplacement.
+ *
+ * <p>Chaque case contient une liste chainee intrusive d'index de vehicules ({@code next}/{@code
+ * prev}) : deplacer un vehicule d'une case a l'autre ne coute que quelques affectations, et il ne
+ * change de case que rarement. Les tetes de liste sont rangees dans une table a adressage ouvert
+ * de cles {@code long}, sans boxing a chaque changement de case. Les positions sont lues dans les
+ * colonnes de la {@link Fleet}.
+ *
+ * <p>Les requetes parcourent les cases autour du point et trient les candidats par distance
+ * (haversine), encodes en {@code long} (millimetres puis index) pour trier sans allocation par
+ * candidat. Non thread-safe : la flotte l'appelle sous son verrou.
+ */
+final class SpatialGrid {
+
+  private static final double METERS_PER_DEGREE = 6_371_000.0 * Math.PI / 180.0;
+  private static final long ABSENT = Long.MIN_VALUE;
+  private static final int NONE = -1;
+
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final double cellMeters;
+  private final double cellLatDeg;
+  private final double cellLonDeg;
+  private final long[] cellOf;
+  private final int[] next;
+  private final int[] prev;
+  private final CellHeads heads = new CellHeads();
+  private int minRow = Integer.MAX_VALUE;
+  private int maxRow = Integer.MIN_VALUE;
+  private int minCol = Integer.MAX_VALUE;
+  private int maxCol = Integer.MIN_VALUE;
+  private long[] candidates = new long[64];
+  private int candidateCount;
+
+  /**
+   * @param referenceLatitudeDeg latitude qui fixe la largeur des cases en longitude, pour des
+   *     cases a peu pres carrees autour de la flotte
+   */
+  SpatialGrid(
+      double[] latitudes, double[] longitudes, double cellMeters, double referenceLatitudeDeg) {
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+    this.cellMeters = cellMeters;
+    this.cellLatDeg = cellMeters / METERS_PER_DEGREE;
+    this.cellLonDeg =
+        cellLatDeg / Math.max(0.01, Math.cos(Math.toRadians(referenceLatitudeDeg)));
+    this.cellOf = new long[latitudes.length];
+    this.next = new int[latitudes.length];
+    this.prev = new int[latitudes.length];
+    Arrays.fill(cellOf, ABSENT);
+  }
+
+  /** Replace le vehicule dans la case de sa position courante ; retire si position absente. */
+  void update(int id) {
+    double lat = latitudes[id];
+    long cell = Double.isNaN(lat) ? ABSENT : key(row(lat), col(longitudes[id]));
+    if (cell == cellOf[id]) {
+      return;
+    }
+    if (cellOf[id] != ABSENT) {
+      unlink(id);
+    }
+    if (cell != ABSENT) {
+      link(id, cell);
+    }
+  }
+
+  /** Vehicules acceptes par le filtre a moins de {@code radiusMeters} ; tries par distance. */
+  int[] withinRadius(double lat, double lon, double radiusMeters, IntPredicate filter) {
+    candidateCount = 0;
+    int rowSpan = (int) Math.ceil(radiusMeters / METERS_PER_DEGREE / cellLatDeg);
+    int colSpan = (int) Math.ceil(radiusMeters / lonMetersPerDegree(lat) / cellLonDeg);
+    int r0 = row(lat);
+    int c0 = col(lon);
+    int fromRow = Math.max(r0 - rowSpan, minRow);
+    int toRow = Math.min(r0 + rowSpan, maxRow);
+    int fromCol = Math.max(c0 - colSpan, minCol);
+    int toCol = Math.min(c0 + colSpan, maxCol);
+    if ((long) (toRow - fromRow + 1) * (toCol - fromCol + 1) > latitudes.length) {
+      // Rayon plus large que la flotte : un parcours direct coute moins que les cases vides.
+      for (int id = 0; id < latitudes.length; id++) {
+        if (cellOf[id] != ABSENT) {
+          collect(id, lat, lon, radiusMeters, filter);
+        }
+      }
+    } else {
+      for (int r = fromRow; r <= toRow; r++) {
+        for (int c = fromCol; c <= toCol; c++) {
+          collectCell(r, c, lat, lon, radiusMeters, filter);
+        }
+      }
+    }
+    Arrays.sort(candidates, 0, candidateCount);
+    return ids(candidateCount);
+  }
+
+  /** Les {@code k} vehicules acceptes par le filtre les plus proches, tries par distance. */
+  int[] nearest(double lat, double lon, int k, IntPredicate filter) {
+    candidateCount = 0;
+    if (k <= 0 || heads.isEmpty()) {
+      return new int[0];
+    }
+    int r0 = row(lat);
+    int c0 = col(lon);
+    double ringMeters = Math.min(cellMeters, cellLonDeg * lonMetersPerDegree(lat));
+    for (int ring = 0; ; ring++) {
+      for (int r = r0 - ring; r <= r0 + ring; r++) {
+        if (r < minRow || r > maxRow) {
+          continue;
+        }
+        boolean edgeRow = r == r0 - ring || r == r0 + ring;
+        for (int c = c0 - ring; c <= c0 + ring; c += edgeRow ? 1 : 2 * Math.max(ring, 1)) {
+          collectCell(r, c, lat, lon, Double.POSITIVE_INFINITY, filter);
+        }
+      }
+      boolean outside =
+          r0 - ring <= minRow && r0 + ring >= maxRow && c0 - ring <= minCol && c0 + ring >= maxCol;
+      if (candidateCount >= k) {
+        Arrays.sort(candidates, 0, candidateCount);
+        // Toute case d'un anneau suivant est a au moins ring cases du point.
+        if (outside || (candidates[k - 1] >>> 32) / 1_000.0 <= ring * ringMeters) {
+          return ids(k);
+        }
+      } else if (outside) {
+        Arrays.sort(candidates, 0, candidateCount);
+        return ids(candidateCount);
+      }
+    }
+  }
+
+  private void collectCell(
+      int r, int c, double lat, double lon, double radiusMeters, IntPredicate filter) {
+    if (c < minCol || c > maxCol) {
+      return;
+    }
+    for (int id = heads.get(key(r, c)); id != NONE; id = next[id]) {
+      collect(id, lat, lon, radiusMeters, filter);
+    }
+  }
+
+  private void collect(int id, double lat, double lon, double radiusMeters, IntPredicate filter) {
+    if (!filter.test(id)) {
+      return;
+    }
+    double distance = GeoMath.distanceMeters(lat, lon, latitudes[id], longitudes[id]);
+    if (distance > radiusMeters) {
+      return;
+    }
+    if (candidateCount == candidates.length) {
+      candidates = Arrays.copyOf(candidates, candidateCount * 2);
+    }
+    long millimetres = Math.min(Math.round(distance * 1_000.0), 0x7fff_ffffL);
+    candidates[candidateCount++] = (millimetres << 32) | id;
+  }
+
+  private int[] ids(int count) {
+    int[] result = new int[count];
+    for (int k = 0; k < count; k++) {
+      result[k] = (int) candidates[k];
+    }
+    return result;
+  }
+
+  private void link(int id, long cell) {
+    int head = heads.put(cell, id);
+    next[id] = head;
+    prev[id] = NONE;
+    if (head != NONE) {
+      prev[head] = id;
+    }
+    cellOf[id] = cell;
+    int r = (int) (cell >> 32);
+    int c = (int) cell;
+    minRow = Math.min(minRow, r);
+    maxRow = Math.max(maxRow, r);
+    minCol = Math.min(minCol, c);
+    maxCol = Math.max(maxCol, c);
+  }
+
+  private void unlink(int id) {
+    long cell = cellOf[id];
+    if (prev[id] != NONE) {
+      next[prev[id]] = next[id];
+    } else if (next[id] != NONE) {
+      heads.put(cell, next[id]);
+    } else {
+      heads.remove(cell);
+    }
+    if (next[id] != NONE) {
+      prev[next[id]] = prev[id];
+    }
+    cellOf[id] = ABSENT;
+  }
+
+  private int row(double lat) {
+    return (int) Math.floor(lat / cellLatDeg);
+  }
+
+  private int col(double lon) {
+    return (int) Math.floor(lon / cellLonDeg);
+  }
+
+  private static double lonMetersPerDegree(double lat) {
+    return METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(lat)));
+  }
+
+  private static long key(int row, int col) {
+    return ((long) row << 32) | (col & 0xffff_ffffL);
+  }
+
+  /**
+   * Table case vers tete de liste : sondage lineaire, charge au plus 1/2, suppression par
+   * recul des entrees suivantes (pas de marque de suppression). {@link #ABSENT} marque une
+   * entree libre, ce n'est jamais une case atteinte.
+   */
+  static final class CellHeads {
+
+    private long[] keys = new long[64];
+    private int[] values = new int[64];
+    private int size;
+
+    CellHeads() {
+      Arrays.fill(keys, ABSENT);
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    /** Tete de la case, {@link #NONE} si vide. */
+    int get(long key) {
+      int mask = keys.length - 1;
+      for (int slot = slot(key, mask); keys[slot] != ABSENT; slot = (slot + 1) & mask) {
+        if (keys[slot] == key) {
+          return values[slot];
+        }
+      }
+      return NONE;
+    }
+
+    /** Associe la tete a la case et retourne l'ancienne, {@link #NONE} si absente. */
+    int put(long key, int value) {
+      int mask = keys.length - 1;
+      int slot = slot(key, mask);
+      while (keys[slot] != ABSENT) {
+        if (keys[slot] == key) {
+          int previous = values[slot];
+          values[slot] = value;
+          return previous;
+        }
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = key;
+      values[slot] = value;
+      if (++size * 2 > keys.length) {
+        grow();
+      }
+      return NONE;
+    }
+
+    void remove(long key) {
+      int mask = keys.length - 1;
+      int hole = slot(key, mask);
+      while (keys[hole] != key) {
+        if (keys[hole] == ABSENT) {
+          return;
+        }
+        hole = (hole + 1) & mask;
+      }
+      // Recule chaque entree suivante dont la place ideale n'est pas entre le trou et elle.
+      for (int slot = (hole + 1) & mask; keys[slot] != ABSENT; slot = (slot + 1) & mask) {
+        int ideal = slot(keys[slot], mask);
+        if (((slot - ideal) & mask) >= ((slot - hole) & mask)) {
+          keys[hole] = keys[slot];
+          values[hole] = values[slot];
+          hole = slot;
+        }
+      }
+      keys[hole] = ABSENT;
+      size--;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new int[oldKeys.length * 2];
+      Arrays.fill(keys, ABSENT);
+      int mask = keys.length - 1;
+      for (int k = 0; k < oldKeys.length; k++) {
+        if (oldKeys[k] != ABSENT) {
+          int slot = slot(oldKeys[k], mask);
+          while (keys[slot] != ABSENT) {
+            slot = (slot + 1) & mask;
+          }
+          keys[slot] = oldKeys[k];
+          values[slot] = oldValues[k];
+        }
+      }
+    }
+
+    private static int slot(long key, int mask) {
+      long mixed = key * 0x9e37_79b9_7f4a_7c15L;
+      return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package cpe.simulator.vehicles.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cadenceur a frequence fixe base sur des echeances absolues, lues sur la {@link SimulationClock}.
+ *
+ * <p>Les echeances sont {@code debut + k * tick} : le temps passe dans un tick ou a se reveiller ne
+ * decale pas les suivants. Le pas retourne par {@link #awaitNextTick()} est le temps reellement
+ * couvert par le tick, pour que les vehicules avancent en temps reel meme quand un tick deborde.
+ */
+public final class TickScheduler {
+
+  /** Au-dela, les ticks en retard sont abandonnes meme en mode rattrapage. */
+  private static final int MAX_CATCH_UP_TICKS = 10;
+
+  private final SimulationClock clock;
+  private final long tickNanos;
+  private final MissedTickPolicy policy;
+  private long nextDeadlineNanos;
+  private long lastTickNanos;
+  private boolean started;
+  private long tickCount;
+  private long overrunCount;
+  private long skippedTickCount;
+
+  public TickScheduler(SimulationClock clock, long tickMs, MissedTickPolicy policy) {
+    this.clock = clock;
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMs));
+    this.policy = policy == null ? MissedTickPolicy.SKIP : policy;
+  }
+
+  /**
+   * Attend l'echeance du prochain tick.
+   *
+   * @return le pas de simulation en secondes a appliquer pour ce tick
+   */
+  public double awaitNextTick() throws InterruptedException {
+    long now = clock.nanoTime();
+    if (!started) {
+      started = true;
+      lastTickNanos = now - tickNanos;
+      nextDeadlineNanos = now;
+    }
+
+    if (now < nextDeadlineNanos) {
+      clock.sleepUntil(nextDeadlineNanos);
+      now = Math.max(clock.nanoTime(), nextDeadlineNanos);
+    } else if (tickCount > 0) {
+      overrunCount++;
+    }
+
+    long tickInstant = now;
+    long behind = (now - nextDeadlineNanos) / tickNanos;
+    if (policy == MissedTickPolicy.CATCH_UP && behind <= MAX_CATCH_UP_TICKS) {
+      // Le tick est date a son echeance ; les suivants, deja echus, s'enchainent sans attente.
+      tickInstant = nextDeadlineNanos;
+      nextDeadlineNanos += tickNanos;
+    } else {
+      skippedTickCount += behind;
+      nextDeadlineNanos += (behind + 1) * tickNanos;
+    }
+
+    long stepNanos = tickInstant - lastTickNanos;
+    lastTickNanos = tickInstant;
+    tickCount++;
+    return stepNanos / 1_000_000_000.0;
+  }
+
+  public long tickCount() {
+    return tickCount;
+  }
+
+  /** Nombre de ticks dont l'echeance etait deja depassee a la fin du tick precedent. */
+  public long overrunCount() {
+    return overrunCount;
+  }
+
+  /** Nombre d'echeances abandonnees (mode {@link MissedTickPolicy#SKIP} ou retard excessif). */
+  public long skippedTickCount() {
+    return skippedTickCount;
+  }
+}
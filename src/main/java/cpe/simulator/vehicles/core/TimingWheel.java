@@ -0,0 +1,111 @@
+package cpe.simulator.vehicles.core;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Roue temporelle hachee portant une echeance par identifiant (index de vehicule).
+ *
+ * <p>Chaque case couvre {@code resolutionMs} et chaine ses entrees par des tableaux d'index
+ * (liste doublement chainee intrusive) : programmer, annuler ou expirer une echeance est en O(1)
+ * et sans allocation. Une echeance au-dela d'un tour de roue reste dans sa case et n'est ignoree
+ * qu'une fois par tour. Classe non thread-safe, protegee par son proprietaire.
+ */
+public final class TimingWheel {
+
+  private static final int NONE = -1;
+
+  private final long resolutionMs;
+  private final int mask;
+  private final int[] slotHeads;
+  private final int[] next;
+  private final int[] prev;
+  private final int[] slotOf;
+  private final long[] deadlines;
+  private long cursorTick = Long.MIN_VALUE;
+
+  /**
+   * @param capacity nombre d'identifiants geres, de {@code 0} a {@code capacity - 1}
+   * @param resolutionMs largeur d'une case
+   * @param slotCount nombre de cases, arrondi a la puissance de deux superieure
+   */
+  public TimingWheel(int capacity, long resolutionMs, int slotCount) {
+    int slots = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+    this.resolutionMs = Math.max(1L, resolutionMs);
+    this.mask = slots - 1;
+    this.slotHeads = new int[slots];
+    this.next = new int[capacity];
+    this.prev = new int[capacity];
+    this.slotOf = new int[capacity];
+    this.deadlines = new long[capacity];
+    Arrays.fill(slotHeads, NONE);
+    Arrays.fill(slotOf, NONE);
+    Arrays.fill(deadlines, Long.MAX_VALUE);
+  }
+
+  /** Programme (ou reprogramme) l'echeance de {@code id}. */
+  public void schedule(int id, long deadlineMs) {
+    cancel(id);
+    long tick = Math.floorDiv(deadlineMs, resolutionMs);
+    if (cursorTick != Long.MIN_VALUE && tick <= cursorTick) {
+      // Deja echue : placee dans la prochaine case visitee.
+      tick = cursorTick + 1;
+    }
+    int slot = (int) (tick & mask);
+    deadlines[id] = deadlineMs;
+    slotOf[id] = slot;
+    prev[id] = NONE;
+    next[id] = slotHeads[slot];
+    if (slotHeads[slot] != NONE) {
+      prev[slotHeads[slot]] = id;
+    }
+    slotHeads[slot] = id;
+  }
+
+  public void cancel(int id) {
+    int slot = slotOf[id];
+    if (slot == NONE) {
+      return;
+    }
+    if (prev[id] != NONE) {
+      next[prev[id]] = next[id];
+    } else {
+      slotHeads[slot] = next[id];
+    }
+    if (next[id] != NONE) {
+      prev[next[id]] = prev[id];
+    }
+    slotOf[id] = NONE;
+    deadlines[id] = Long.MAX_VALUE;
+  }
+
+  /** Echeance programmee pour {@code id}, ou {@link Long#MAX_VALUE} si aucune. */
+  public long deadline(int id) {
+    return deadlines[id];
+  }
+
+  /**
+   * Retire et signale toutes les echeances {@code <= nowMs}. Seules les cases ecoulees depuis
+   * l'appel precedent sont parcourues.
+   */
+  public void expire(long nowMs, IntConsumer onExpired) {
+    long nowTick = Math.floorDiv(nowMs, resolutionMs);
+    long fromTick =
+        cursorTick == Long.MIN_VALUE || nowTick - cursorTick > mask
+            ? nowTick - mask
+            : cursorTick + 1;
+    for (long tick = fromTick; tick <= nowTick; tick++) {
+      int id = slotHeads[(int) (tick & mask)];
+      while (id != NONE) {
+        int following = next[id];
+        if (deadlines[id] <= nowMs) {
+          cancel(id);
+          onExpired.accept(id);
+        }
+        id = following;
+      }
+    }
+    // La case courante peut encore contenir des echeances a venir : elle sera revisitee.
+    cursorTick = nowTick - 1;
+  }
+}
@@ -0,0 +1,58 @@
+package cpe.simulator.vehicles.core;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyaux de distance vectorises. Ne doit etre charge que si le module {@code
+ * jdk.incubator.vector} est present, voir {@link LocalProjection#isVectorized()}.
+ */
+final class VectorDistance {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  private static final double DEGREES_TO_RADIANS = Math.toRadians(1.0);
+
+  private VectorDistance() {}
+
+  /**
+   * Version vectorisee de {@link LocalProjection#distanceMeters}, operation par operation pour
+   * donner exactement le meme resultat.
+   *
+   * @return le nombre de paires traitees, multiple de la largeur des vecteurs ; le reste est a
+   *     traiter en scalaire
+   */
+  static int localProjection(
+      double referenceLatRad,
+      double cosReference,
+      double sinReference,
+      double[] lat1Deg,
+      double[] lon1Deg,
+      double[] lat2Deg,
+      double[] lon2Deg,
+      int count,
+      double[] out) {
+    DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+    int bound = SPECIES.loopBound(count);
+    for (int k = 0; k < bound; k += SPECIES.length()) {
+      DoubleVector lat1 = DoubleVector.fromArray(SPECIES, lat1Deg, k);
+      DoubleVector lon1 = DoubleVector.fromArray(SPECIES, lon1Deg, k);
+      DoubleVector lat2 = DoubleVector.fromArray(SPECIES, lat2Deg, k);
+      DoubleVector lon2 = DoubleVector.fromArray(SPECIES, lon2Deg, k);
+
+      DoubleVector offset = lat1.add(lat2).mul(0.5).mul(DEGREES_TO_RADIANS).sub(referenceLatRad);
+      DoubleVector offset2 = offset.mul(offset);
+      DoubleVector cosMean =
+          one.sub(offset2.mul(0.5))
+              .mul(cosReference)
+              .sub(offset.mul(sinReference).mul(one.sub(offset2.div(6.0))));
+      DoubleVector dx = lon2.sub(lon1).mul(DEGREES_TO_RADIANS).mul(cosMean);
+      DoubleVector dy = lat2.sub(lat1).mul(DEGREES_TO_RADIANS);
+      dx.mul(dx)
+          .add(dy.mul(dy))
+          .sqrt()
+          .mul(LocalProjection.EARTH_RADIUS_METERS)
+          .intoArray(out, k);
+    }
+    return bound;
+  }
+}
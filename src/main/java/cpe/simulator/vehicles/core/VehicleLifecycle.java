@@ -0,0 +1,298 @@
+package cpe.simulator.vehicles.core;
+
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.api.TelemetryGateway;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import cpe.simulator.vehicles.domain.VehicleStatus;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Traitement d'un vehicule remonte par un moteur de simulation : effets des transitions partages
+ * entre vehicules (fin d'intervention, route de retour), journalisation et telemetrie.
+ *
+ * <p>Commun au moteur a pas fixe et au moteur a evenements ; seule la facon de deplacer les
+ * vehicules et de les reveiller differe entre les deux.
+ *
+ * <p>Les routes de retour sont calculees hors du thread de simulation, sur des threads virtuels :
+ * le vehicule part tout droit vers sa base et le trajet est raccorde a son arrivee
+ * ({@link Fleet#spliceRoute}), sauf si le vehicule a change de mission entre-temps. La fin d'une
+ * grosse intervention ne bloque donc plus la simulation le temps des appels au QG. Le plus
+ * souvent, la route a deja ete prechargee a l'affectation ({@link AssignmentEventHandler}) et le
+ * depart est immediat.
+ */
+final class VehicleLifecycle {
+
+  private static final byte NO_STATUS = -1;
+  private static final VehicleStatus[] STATUSES = VehicleStatus.values();
+
+  private final Fleet fleet;
+  private final MovementModel movementModel;
+  private final TelemetryGateway telemetryGateway;
+  private final Logger logger;
+  private final long baseSendIntervalMs;
+  private final long movingSendIntervalMs;
+  private final long statusSendIntervalMs;
+  private final long onSiteDurationMs;
+  private final long baseSendJitterMs;
+  private final RouteService routeService;
+  private final boolean routeSnapStart;
+  private final long[] nextPositionSendMs;
+  private final long[] nextStatusSendMs;
+  private final byte[] lastSentStatus;
+  private final byte[] lastObservedStatus;
+  private final boolean[] returnRoutePending;
+  private final ExecutorService routingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+  VehicleLifecycle(
+      Fleet fleet,
+      MovementModel movementModel,
+      TelemetryGateway telemetryGateway,
+      Logger logger,
+      long baseSendIntervalMs,
+      long movingSendIntervalMs,
+      long statusSendIntervalMs,
+      long onSiteDurationMs,
+      RouteService routeService,
+      boolean routeSnapStart) {
+    this.fleet = fleet;
+    this.movementModel = movementModel;
+    this.telemetryGateway = telemetryGateway;
+    this.logger = logger;
+    this.baseSendIntervalMs = baseSendIntervalMs;
+    this.movingSendIntervalMs = movingSendIntervalMs;
+    this.statusSendIntervalMs = statusSendIntervalMs;
+    this.onSiteDurationMs = onSiteDurationMs;
+    this.baseSendJitterMs = baseSendIntervalMs / 5;
+    this.routeService = routeService;
+    this.routeSnapStart = routeSnapStart;
+    this.nextPositionSendMs = new long[fleet.size()];
+    this.nextStatusSendMs = new long[fleet.size()];
+    this.lastSentStatus = new byte[fleet.size()];
+    this.lastObservedStatus = new byte[fleet.size()];
+    this.returnRoutePending = new boolean[fleet.size()];
+    Arrays.fill(lastSentStatus, NO_STATUS);
+    Arrays.fill(lastObservedStatus, NO_STATUS);
+  }
+
+  /**
+   * Traite un vehicule du flux : transitions, envois de position et de status.
+   *
+   * @param flags drapeaux {@link FleetChanges} du vehicule
+   * @return la prochaine echeance a laquelle le vehicule doit etre reveille
+   */
+  long process(int index, int flags, long nowMs) {
+    long timestampSeconds = nowMs / 1_000L;
+    VehicleSnapshot snapshot = fleet.snapshot(index);
+    logStatusChange(index, snapshot);
+    handleStatusTransitions(index, snapshot, nowMs);
+    sendPositionIfNeeded(index, snapshot, flags, nowMs, timestampSeconds);
+    sendStatusIfNeeded(index, snapshot, nowMs, timestampSeconds);
+    return nextWakeMs(index, snapshot, nowMs);
+  }
+
+  private void handleStatusTransitions(int index, VehicleSnapshot snapshot, long nowMs) {
+    String immat = snapshot.immatriculation();
+    GeoPoint target = snapshot.assignmentTarget();
+    String incidentPhaseId = snapshot.incidentPhaseId();
+    VehicleStatus status = snapshot.status();
+    IncidentCoordinator coordinator = fleet.incidentCoordinator();
+
+    // Les arrivees sont detectees et appliquees par la flotte pendant le deplacement,
+    // seuls les effets partages entre vehicules restent sequentiels.
+    if (snapshot.transition() == VehicleTransition.ARRIVED_AT_TARGET) {
+      coordinator.markArrived(index, incidentPhaseId, nowMs, target);
+      logger.info("Vehicule arrive sur intervention: " + immat);
+    }
+
+    if (target != null && incidentPhaseId != null && status == VehicleStatus.SUR_INTERVENTION) {
+      if (coordinator.canReturn(incidentPhaseId, nowMs, onSiteDurationMs)) {
+        int lastVehicle = coordinator.getLastArrivedVehicle(incidentPhaseId);
+        if (lastVehicle < 0) {
+          lastVehicle = index;
+        }
+        for (int vehicle : coordinator.getAssignedVehicles(incidentPhaseId)) {
+          fleet.startReturn(vehicle);
+          returnRoutePending[vehicle] = true;
+          logger.info("Vehicule quitte l'intervention: " + fleet.immatriculation(vehicle));
+        }
+        telemetryGateway.publishIncidentStatus(
+            fleet.immatriculation(lastVehicle), 1, nowMs / 1_000L); // Tous sont partis
+        coordinator.clearIncident(incidentPhaseId);
+      }
+    }
+
+    if (status == VehicleStatus.RETOUR) {
+      // Si une route de retour est en attente, la demander en tache de fond
+      if (returnRoutePending[index]) {
+        requestReturnRoute(index, snapshot);
+        returnRoutePending[index] = false;
+      }
+    }
+
+    if (snapshot.transition() == VehicleTransition.ARRIVED_AT_BASE) {
+      returnRoutePending[index] = false;
+      logger.info("Vehicule de retour a la base: " + immat);
+    }
+  }
+
+  private void sendPositionIfNeeded(
+      int index, VehicleSnapshot snapshot, int flags, long nowMs, long timestampSeconds) {
+    long intervalMs = positionSendIntervalMs(snapshot);
+    if ((flags & (FleetChanges.STATUS | FleetChanges.ASSIGNMENT)) != 0) {
+      // Le vehicule change de regime (depart, arrivee, retour) : l'echeance deja programmee
+      // ne doit pas depasser le nouvel intervalle.
+      nextPositionSendMs[index] = Math.min(nextPositionSendMs[index], nowMs + intervalMs);
+    }
+
+    if (nowMs >= nextPositionSendMs[index]) {
+      telemetryGateway.publishVehiclePosition(
+          snapshot.immatriculation(), snapshot.position(), timestampSeconds);
+      nextPositionSendMs[index] = nowMs + intervalMs;
+    }
+  }
+
+  private void sendStatusIfNeeded(
+      int index, VehicleSnapshot snapshot, long nowMs, long timestampSeconds) {
+    byte currentStatus = (byte) snapshot.status().ordinal();
+
+    boolean statusChanged = lastSentStatus[index] != currentStatus;
+    boolean intervalElapsed = nowMs >= nextStatusSendMs[index];
+
+    if (statusChanged || intervalElapsed) {
+      telemetryGateway.publishVehicleStatus(
+          snapshot.immatriculation(), snapshot.status(), timestampSeconds);
+      nextStatusSendMs[index] = nowMs + statusSendIntervalMs;
+      lastSentStatus[index] = currentStatus;
+    }
+  }
+
+  /**
+   * Prochaine echeance a laquelle le vehicule doit repasser dans le flux meme sans changement :
+   * envoi de position ou de status periodique, ou fin du temps sur site.
+   */
+  private long nextWakeMs(int index, VehicleSnapshot snapshot, long nowMs) {
+    long wakeMs = Math.min(nextPositionSendMs[index], nextStatusSendMs[index]);
+    if (snapshot.status() == VehicleStatus.SUR_INTERVENTION && snapshot.arrivedAtTargetMs() >= 0) {
+      // Le dernier arrive de la phase se reveille exactement a la fin du temps sur site,
+      // les autres ne sont reveilles que tant que leur propre echeance est a venir.
+      long onSiteEndMs = snapshot.arrivedAtTargetMs() + onSiteDurationMs;
+      if (onSiteEndMs > nowMs) {
+        wakeMs = Math.min(wakeMs, onSiteEndMs);
+      }
+    }
+    return wakeMs;
+  }
+
+  private void logStatusChange(int index, VehicleSnapshot snapshot) {
+    VehicleStatus currentStatus = snapshot.status();
+    byte previous = lastObservedStatus[index];
+    lastObservedStatus[index] = (byte) currentStatus.ordinal();
+
+    if (previous != NO_STATUS && STATUSES[previous] != currentStatus) {
+      logger.info(
+          "Changement de status vehicule "
+              + snapshot.immatriculation()
+              + ": "
+              + STATUSES[previous]
+              + " -> "
+              + currentStatus);
+    }
+  }
+
+  private long positionSendIntervalMs(VehicleSnapshot snapshot) {
+    // Un vehicule disponible est a sa base (il ne le devient qu'en y arrivant), inutile de
+    // recalculer la distance.
+    if (snapshot.status() == VehicleStatus.DISPONIBLE) {
+      return baseSendIntervalWithJitterMs();
+    }
+    // Vehicle is moving (either to incident or returning to base)
+    if (snapshot.assignmentTarget() != null || snapshot.status() == VehicleStatus.RETOUR) {
+      return movingSendIntervalMs;
+    }
+    return baseSendIntervalMs;
+  }
+
+  /**
+   * Intervalle de base avec une gigue tiree a chaque programmation, pour etaler les envois des
+   * vehicules stationnes sans conserver de decalage par vehicule.
+   */
+  private long baseSendIntervalWithJitterMs() {
+    if (baseSendJitterMs <= 0) {
+      return baseSendIntervalMs;
+    }
+    long offset = ThreadLocalRandom.current().nextLong(-baseSendJitterMs, baseSendJitterMs + 1);
+    return Math.max(1L, baseSendIntervalMs + offset);
+  }
+
+  private void requestReturnRoute(int index, VehicleSnapshot snapshot) {
+    String immat = snapshot.immatriculation();
+    GeoPoint currentPosition = snapshot.position();
+    GeoPoint base = snapshot.base();
+
+    if (base == null) {
+      logger.warn("Impossible de calculer route retour: base non definie pour " + immat);
+      return;
+    }
+
+    RoutePlan prefetched = fleet.takeReturnRoute(index);
+    if (prefetched != null) {
+      fleet.startReturnWithRoute(index, prefetched);
+      logger.info("Route retour prechargee utilisee pour " + immat);
+      return;
+    }
+
+    // Tout droit vers la base en attendant le trajet.
+    fleet.startReturnWithRoute(index, null);
+    int epoch = fleet.routeEpoch(index);
+    routingExecutor.execute(
+        () -> {
+          try {
+            RoutePlan returnPlan =
+                routeService.computeRoute(currentPosition, base, routeSnapStart);
+            if (returnPlan == null) {
+              return;
+            }
+            if (fleet.spliceRoute(index, epoch, returnPlan)) {
+              logger.info("Route retour calculee pour " + immat);
+            } else {
+              logger.info("Route retour obsolete ignoree pour " + immat);
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (Exception e) {
+            logger.warn("Erreur calcul route retour pour " + immat + ": " + e.getMessage());
+          }
+        });
+  }
+
+  /** Abandonne les calculs de route en cours. */
+  void close() {
+    routingExecutor.shutdownNow();
+  }
+
+  /** Engage le retour des vehicules qui ne sont pas a leur base au demarrage. */
+  void initializeVehiclesNotAtBase() {
+    for (int index = 0; index < fleet.size(); index++) {
+      VehicleSnapshot snapshot = fleet.snapshot(index);
+      GeoPoint base = snapshot.base();
+      GeoPoint position = snapshot.position();
+
+      if (base == null) {
+        logger.warn("Vehicule sans base definie: " + snapshot.immatriculation());
+        continue;
+      }
+
+      if (!movementModel.isAtTarget(position, base)) {
+        logger.info(
+            "Vehicule non a sa base au demarrage, initiate retour: "
+                + snapshot.immatriculation());
+        fleet.startReturn(index);
+        returnRoutePending[index] = true;
+      }
+    }
+  }
+}
@@ -4,36 +4,28 @@ import cpe.simulator.vehicles.api.AssignmentMessageListener;
 import cpe.simulator.vehicles.api.Logger;
 import cpe.simulator.vehicles.api.RouteService;
 import cpe.simulator.vehicles.api.TelemetryGateway;
-import cpe.simulator.vehicles.domain.GeoPoint;
-import cpe.simulator.vehicles.domain.VehicleStatus;
-import java.time.Clock;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ThreadLocalRandom;
 
-/** Boucle principale de simulation des vehicules. */
-public final class VehicleSimulator {
+/**
+ * Boucle principale de simulation des vehicules, a pas fixe : chaque tick deplace toute la flotte.
+ *
+ * <p>Le suivi par vehicule est range dans des tableaux indexes comme la {@link Fleet} ;
+ * l'immatriculation n'est utilisee que pour publier la telemetrie et journaliser.
+ */
+public final class VehicleSimulator implements SimulationEngine {
+
+  private static final long REPORT_INTERVAL_NANOS = 10_000_000_000L;
 
   private final Fleet fleet;
   private final MovementModel movementModel;
   private final TelemetryGateway telemetryGateway;
   private final AssignmentMessageListener assignmentListener;
   private final Logger logger;
-  private final Clock clock;
-  private final long tickMs;
-  private final long baseSendIntervalMs;
-  private final long movingSendIntervalMs;
-  private final long statusSendIntervalMs;
-  private final long onSiteDurationMs;
-  private final long baseSendJitterMs;
-  private final RouteService routeService;
-  private final boolean routeSnapStart;
-  private final Map<String, Long> lastPositionSendMs = new HashMap<>();
-  private final Map<String, Long> lastStatusSendMs = new HashMap<>();
-  private final Map<String, VehicleStatus> lastSentStatus = new HashMap<>();
-  private final Map<String, VehicleStatus> lastObservedStatus = new HashMap<>();
-  private final Map<String, Long> returnRoutePendingMs = new HashMap<>();
-  private final Map<String, Long> baseSendOffsetsMs = new HashMap<>();
+  private final SimulationClock clock;
+  private final TickScheduler scheduler;
+  private final VehicleLifecycle lifecycle;
+  private long reportedOverrunCount;
+  private long reportedTickCount;
+  private long lastReportNanos;
 
   public VehicleSimulator(
       Fleet fleet,
@@ -41,8 +33,9 @@ public final class VehicleSimulator {
       TelemetryGateway telemetryGateway,
       AssignmentMessageListener assignmentListener,
       Logger logger,
-      Clock clock,
+      SimulationClock clock,
       long tickMs,
+      MissedTickPolicy missedTickPolicy,
       long baseSendIntervalMs,
       long movingSendIntervalMs,
       long statusSendIntervalMs,
@@ -55,203 +48,93 @@ public final class VehicleSimulator {
     this.assignmentListener = assignmentListener;
     this.logger = logger;
     this.clock = clock;
-    this.tickMs = tickMs;
-    this.baseSendIntervalMs = baseSendIntervalMs;
-    this.movingSendIntervalMs = movingSendIntervalMs;
-    this.statusSendIntervalMs = statusSendIntervalMs;
-    this.onSiteDurationMs = onSiteDurationMs;
-    this.baseSendJitterMs = baseSendIntervalMs / 5;
-    this.routeService = routeService;
-    this.routeSnapStart = routeSnapStart;
+    this.scheduler = new TickScheduler(clock, tickMs, missedTickPolicy);
+    this.lifecycle =
+        new VehicleLifecycle(
+            fleet,
+            movementModel,
+            telemetryGateway,
+            logger,
+            baseSendIntervalMs,
+            movingSendIntervalMs,
+            statusSendIntervalMs,
+            onSiteDurationMs,
+            routeService,
+            routeSnapStart);
   }
 
+  @Override
   public void run() {
     logger.info("Vehicules charges: " + fleet.size());
-    initializeVehiclesNotAtBase();
+    if (clock.timeScale() != 1.0) {
+      logger.info("Temps simule accelere: x" + clock.timeScale());
+    }
+    lifecycle.initializeVehiclesNotAtBase();
     telemetryGateway.start(assignmentListener);
-
-    double tickSeconds = tickMs / 1_000.0;
+    lastReportNanos = System.nanoTime();
 
     try {
       while (!Thread.currentThread().isInterrupted()) {
-        long tickStart = System.nanoTime();
+        double deltaSeconds = scheduler.awaitNextTick();
         long nowMs = clock.millis();
-        long timestampSeconds = nowMs / 1_000L;
 
-        for (VehicleSnapshot snapshot : fleet.advanceAll(movementModel, tickSeconds)) {
-          logStatusChange(snapshot);
-          handleStatusTransitions(snapshot, nowMs);
-          sendPositionIfNeeded(snapshot, nowMs, timestampSeconds);
-          sendStatusIfNeeded(snapshot, nowMs, timestampSeconds);
+        FleetChanges changes = fleet.advanceAll(movementModel, deltaSeconds, nowMs);
+        for (int k = 0; k < changes.size(); k++) {
+          int index = changes.vehicleAt(k);
+          fleet.scheduleWake(index, lifecycle.process(index, changes.flagsAt(k), nowMs));
         }
 
-        long elapsedMs = (System.nanoTime() - tickStart) / 1_000_000L;
-        long sleepMs = tickMs - elapsedMs;
-        if (sleepMs > 0) {
-          Thread.sleep(sleepMs);
-        }
+        reportTickStats();
       }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       logger.warn("Simulation interrompue");
     } finally {
+      lifecycle.close();
+      fleet.close();
       telemetryGateway.close();
+      assignmentListener.close();
     }
   }
 
-  private void handleStatusTransitions(VehicleSnapshot snapshot, long nowMs) {
-    String immat = snapshot.immatriculation();
-    GeoPoint target = snapshot.assignmentTarget();
-    String incidentPhaseId = snapshot.incidentPhaseId();
-    VehicleStatus status = snapshot.status();
-    IncidentCoordinator coordinator = fleet.incidentCoordinator();
-
-    if (target != null && incidentPhaseId != null && status == VehicleStatus.ENGAGE) {
-      if (movementModel.isAtTarget(snapshot.position(), target)) {
-        fleet.markArrivedAtTarget(immat, nowMs);
-        coordinator.markArrived(immat, incidentPhaseId, nowMs, target);
-        logger.info("Vehicule arrive sur intervention: " + immat);
-      }
-    }
-
-    if (target != null && incidentPhaseId != null && status == VehicleStatus.SUR_INTERVENTION) {
-      if (coordinator.canReturn(incidentPhaseId, nowMs, onSiteDurationMs)) {
-        String lastVehicle = coordinator.getLastArrivedVehicle(incidentPhaseId);
-        if (lastVehicle == null) {
-          lastVehicle = immat;
-        }
-        for (String vehicleImmat : coordinator.getAssignedVehicles(incidentPhaseId)) {
-          fleet.startReturn(vehicleImmat);
-          returnRoutePendingMs.put(vehicleImmat, nowMs);
-          logger.info("Vehicule quitte l'intervention: " + vehicleImmat);
-        }
-        telemetryGateway.publishIncidentStatus(
-            lastVehicle, 1, nowMs / 1_000L); // Tous sont partis
-        coordinator.clearIncident(incidentPhaseId);
-      }
-    }
-
-    if (status == VehicleStatus.RETOUR) {
-      // Si une route de retour est en attente, la calculer et l'assigner
-      if (returnRoutePendingMs.containsKey(immat)) {
-        computeAndAssignReturnRoute(snapshot);
-        returnRoutePendingMs.remove(immat);
-      }
-
-      GeoPoint base = snapshot.base();
-      if (base != null && movementModel.isAtTarget(snapshot.position(), base)) {
-        fleet.assignToBase(immat);
-        logger.info("Vehicule de retour a la base: " + immat);
-      }
-    }
-  }
-
-  private void sendPositionIfNeeded(VehicleSnapshot snapshot, long nowMs, long timestampSeconds) {
-    String immat = snapshot.immatriculation();
-    long intervalMs = positionSendIntervalMs(snapshot);
-    Long last = lastPositionSendMs.get(immat);
-
-    if (last == null || nowMs - last >= intervalMs) {
-      telemetryGateway.publishVehiclePosition(
-          snapshot.immatriculation(), snapshot.position(), timestampSeconds);
-      lastPositionSendMs.put(immat, nowMs);
-    }
+  /** Nombre de ticks ayant depasse leur echeance depuis le demarrage. */
+  public long tickOverrunCount() {
+    return scheduler.overrunCount();
   }
 
-  private void sendStatusIfNeeded(VehicleSnapshot snapshot, long nowMs, long timestampSeconds) {
-    String immat = snapshot.immatriculation();
-    VehicleStatus currentStatus = snapshot.status();
-    VehicleStatus previousStatus = lastSentStatus.get(immat);
-    Long lastSend = lastStatusSendMs.get(immat);
-
-    boolean statusChanged = previousStatus != currentStatus;
-    boolean intervalElapsed = lastSend == null || nowMs - lastSend >= statusSendIntervalMs;
-
-    if (statusChanged || intervalElapsed) {
-      telemetryGateway.publishVehicleStatus(
-          snapshot.immatriculation(), snapshot.status(), timestampSeconds);
-      lastStatusSendMs.put(immat, nowMs);
-      lastSentStatus.put(immat, currentStatus);
-    }
-  }
-
-  private void logStatusChange(VehicleSnapshot snapshot) {
-    String immat = snapshot.immatriculation();
-    VehicleStatus currentStatus = snapshot.status();
-    VehicleStatus previousStatus = lastObservedStatus.put(immat, currentStatus);
-
-    if (previousStatus != null && previousStatus != currentStatus) {
-      logger.info(
-          "Changement de status vehicule "
-              + immat
-              + ": "
-              + previousStatus
-              + " -> "
-              + currentStatus);
-    }
-  }
-
-  private long positionSendIntervalMs(VehicleSnapshot snapshot) {
-    GeoPoint base = snapshot.base();
-    if (base != null && movementModel.isAtTarget(snapshot.position(), base)) {
-      return baseSendIntervalWithJitterMs(snapshot.immatriculation());
-    }
-    // Vehicle is moving (either to incident or returning to base)
-    if (snapshot.assignmentTarget() != null || snapshot.status() == VehicleStatus.RETOUR) {
-      return movingSendIntervalMs;
-    }
-    return baseSendIntervalMs;
-  }
-
-  private long baseSendIntervalWithJitterMs(String immatriculation) {
-    if (baseSendJitterMs <= 0) {
-      return baseSendIntervalMs;
-    }
-    Long offset = baseSendOffsetsMs.get(immatriculation);
-    if (offset == null) {
-      offset =
-          ThreadLocalRandom.current().nextLong(-baseSendJitterMs, baseSendJitterMs + 1);
-      baseSendOffsetsMs.put(immatriculation, offset);
-    }
-    long interval = baseSendIntervalMs + offset;
-    return Math.max(1L, interval);
-  }
-
-  private void computeAndAssignReturnRoute(VehicleSnapshot snapshot) {
-    String immat = snapshot.immatriculation();
-    GeoPoint currentPosition = snapshot.position();
-    GeoPoint base = snapshot.base();
-
-    if (base == null) {
-      logger.warn("Impossible de calculer route retour: base non definie pour " + immat);
+  /**
+   * Journalise, au plus toutes les 10 secondes reelles, les ticks en retard et, hors temps reel,
+   * la cadence atteinte en ticks par seconde.
+   */
+  private void reportTickStats() {
+    long now = System.nanoTime();
+    long elapsedNanos = now - lastReportNanos;
+    if (elapsedNanos < REPORT_INTERVAL_NANOS) {
       return;
     }
-
-    try {
-      RoutePlan returnPlan = routeService.computeRoute(currentPosition, base, routeSnapStart);
-      fleet.startReturnWithRoute(immat, returnPlan);
-      logger.info("Route retour calculee pour " + immat);
-    } catch (Exception e) {
-      logger.warn("Erreur calcul route retour pour " + immat + ": " + e.getMessage());
+    long overruns = scheduler.overrunCount();
+    if (overruns != reportedOverrunCount) {
+      logger.warn(
+          "Ticks en retard: "
+              + (overruns - reportedOverrunCount)
+              + " (total "
+              + overruns
+              + "/"
+              + scheduler.tickCount()
+              + ", ticks abandonnes "
+              + scheduler.skippedTickCount()
+              + ")");
     }
-  }
-
-  private void initializeVehiclesNotAtBase() {
-    for (VehicleSnapshot snapshot : fleet.snapshots()) {
-      GeoPoint base = snapshot.base();
-      GeoPoint position = snapshot.position();
-
-      if (base == null) {
-        logger.warn("Vehicule sans base definie: " + snapshot.immatriculation());
-        continue;
-      }
-
-      if (!movementModel.isAtTarget(position, base)) {
-        String immat = snapshot.immatriculation();
-        logger.info("Vehicule non a sa base au demarrage, initiate retour: " + immat);
-        fleet.startReturn(immat);
-        returnRoutePendingMs.put(immat, clock.millis());
-      }
+    if (clock.timeScale() != 1.0) {
+      long ticks = scheduler.tickCount() - reportedTickCount;
+      logger.info(
+          "Cadence: "
+              + Math.round(ticks * 1_000_000_000.0 / elapsedNanos)
+              + " ticks/s, temps simule "
+              + clock.instant());
     }
+    reportedOverrunCount = overruns;
+    reportedTickCount = scheduler.tickCount();
+    lastReportNanos = now;
   }
 }
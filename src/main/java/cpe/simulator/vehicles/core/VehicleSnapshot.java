@@ -11,4 +11,5 @@ public record VehicleSnapshot(
     GeoPoint assignmentTarget,
     String incidentPhaseId,
     VehicleStatus status,
-    long arrivedAtTargetMs) {}
+    long arrivedAtTargetMs,
+    VehicleTransition transition) {}
@@ -0,0 +1,8 @@
+package cpe.simulator.vehicles.core;
+
+/** Transition de status appliquee a un vehicule pendant le dernier tick. */
+public enum VehicleTransition {
+  NONE,
+  ARRIVED_AT_TARGET,
+  ARRIVED_AT_BASE
+}
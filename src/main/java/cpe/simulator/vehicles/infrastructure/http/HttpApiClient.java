@@ -1,18 +1,29 @@
 package cpe.simulator.vehicles.infrastructure.http;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
-/** Client HTTP generique avec authentification pluggable. */
+/**
+ * Client HTTP generique avec authentification pluggable.
+ *
+ * <p>Les reponses sont demandees compressees ({@code Accept-Encoding: gzip}) et toujours lues en
+ * flux : le corps n'est jamais recopie en entier dans une chaine.
+ */
 public final class HttpApiClient {
 
+  private static final int GZIP_BUFFER_BYTES = 8_192;
+
   private final URI baseUri;
   private final long timeoutMs;
   private final AuthStrategy authStrategy;
@@ -33,35 +44,74 @@ public final class HttpApiClient {
   }
 
   public <T> T get(String path, Class<T> responseType) throws IOException, InterruptedException {
-    HttpResponse<String> response = send("GET", path, null);
-    ensureSuccess(response);
-    return objectMapper.readValue(response.body(), responseType);
+    return exchange("GET", path, null, parser -> objectMapper.readValue(parser, responseType));
   }
 
   public <T> List<T> getList(String path, TypeReference<List<T>> responseType)
       throws IOException, InterruptedException {
-    HttpResponse<String> response = send("GET", path, null);
-    ensureSuccess(response);
-    return objectMapper.readValue(response.body(), responseType);
+    return exchange("GET", path, null, parser -> objectMapper.readValue(parser, responseType));
   }
 
   public <T> T post(String path, Object payload, Class<T> responseType)
       throws IOException, InterruptedException {
     String json = objectMapper.writeValueAsString(payload);
-    HttpResponse<String> response = send("POST", path, json);
-    ensureSuccess(response);
-    return objectMapper.readValue(response.body(), responseType);
+    return exchange("POST", path, json, parser -> objectMapper.readValue(parser, responseType));
+  }
+
+  /**
+   * POST dont la reponse est lue en flux par {@code reader}, sans passer par une chaine ni par un
+   * arbre d'objets intermediaire.
+   */
+  public <T> T post(String path, Object payload, JsonStreamReader<T> reader)
+      throws IOException, InterruptedException {
+    return exchange("POST", path, objectMapper.writeValueAsString(payload), reader);
   }
 
-  private HttpResponse<String> send(String method, String path, String body)
+  /**
+   * Envoie la requete et lit la reponse en flux, decompressee a la volee si le serveur a repondu
+   * en gzip.
+   */
+  private <T> T exchange(String method, String path, String body, JsonStreamReader<T> reader)
       throws IOException, InterruptedException {
+    HttpResponse<InputStream> response =
+        httpClient.send(request(method, path, body), HttpResponse.BodyHandlers.ofInputStream());
+    try (InputStream content = decoded(response)) {
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        throw new RuntimeException(
+            "HTTP "
+                + response.statusCode()
+                + ": "
+                + new String(content.readAllBytes(), StandardCharsets.UTF_8));
+      }
+      try (JsonParser parser = objectMapper.getFactory().createParser(content)) {
+        return reader.read(parser);
+      }
+    }
+  }
+
+  private static InputStream decoded(HttpResponse<InputStream> response) throws IOException {
+    String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+    InputStream body = response.body();
+    if (!"gzip".equalsIgnoreCase(encoding.trim())) {
+      return body;
+    }
+    try {
+      return new GZIPInputStream(body, GZIP_BUFFER_BYTES);
+    } catch (IOException e) {
+      body.close();
+      throw e;
+    }
+  }
+
+  private HttpRequest request(String method, String path, String body) {
     String normalizedPath = path.startsWith("/") ? path.substring(1) : path;
     URI uri = baseUri.resolve(normalizedPath);
 
     HttpRequest.Builder builder =
         HttpRequest.newBuilder(uri)
             .timeout(Duration.ofMillis(timeoutMs))
-            .header("Accept", "application/json");
+            .header("Accept", "application/json")
+            .header("Accept-Encoding", "gzip");
 
     authStrategy.apply(builder);
 
@@ -73,12 +123,6 @@ public final class HttpApiClient {
           .method(method, HttpRequest.BodyPublishers.ofString(body));
     }
 
-    return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-  }
-
-  private void ensureSuccess(HttpResponse<String> response) {
-    if (response.statusCode() < 200 || response.statusCode() >= 300) {
-      throw new RuntimeException("HTTP " + response.statusCode() + ": " + response.body());
-    }
+    return builder.build();
   }
 }
@@ -0,0 +1,10 @@
+package cpe.simulator.vehicles.infrastructure.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+
+/** Lecture en flux d'une reponse JSON, jeton par jeton. */
+@FunctionalInterface
+public interface JsonStreamReader<T> {
+  T read(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,149 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.RoutePath;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache d'itineraires devant un autre {@link RouteService}.
+ *
+ * <p>Les demandes sont regroupees par {@link RouteKey} (coordonnees ramenees sur une grille) :
+ * les retours vers une meme caserne et les departs d'une meme zone ne coutent qu'un appel. Le
+ * cache garde la geometrie partagee ({@link RoutePath}) et rend a chaque appel un nouveau
+ * {@link RoutePlan}, dont le curseur est propre au vehicule. Le depart du trajet peut donc
+ * differer de la position reelle d'au plus une case, ce que le segment d'approche absorbe.
+ *
+ * <p>Taille bornee avec eviction du moins recemment utilise ({@link LinkedHashMap} en ordre
+ * d'acces) et duree de vie par entree. Les echecs et les reponses vides ne sont pas gardes.
+ */
+public final class CachingRouteService implements RouteService {
+
+  private static final long REPORT_EVERY = 100L;
+
+  private final RouteService delegate;
+  private final Logger logger;
+  private final int maxEntries;
+  private final long ttlNanos;
+  private final double gridMeters;
+  private final LongSupplier nanoTime;
+  private final Map<RouteKey, Entry> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public CachingRouteService(
+      RouteService delegate, Logger logger, int maxEntries, long ttlMs, double gridMeters) {
+    this(delegate, logger, maxEntries, ttlMs, gridMeters, System::nanoTime);
+  }
+
+  CachingRouteService(
+      RouteService delegate,
+      Logger logger,
+      int maxEntries,
+      long ttlMs,
+      double gridMeters,
+      LongSupplier nanoTime) {
+    this.delegate = delegate;
+    this.logger = logger;
+    this.maxEntries = Math.max(1, maxEntries);
+    this.ttlNanos = ttlMs > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMs) : Long.MAX_VALUE;
+    this.gridMeters = gridMeters;
+    this.nanoTime = nanoTime;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  @Override
+  public RoutePlan computeRoute(GeoPoint from, GeoPoint to, boolean snapStart) throws Exception {
+    if (from == null || to == null) {
+      return null;
+    }
+    RouteKey key = RouteKey.of(from, to, snapStart, gridMeters);
+    RoutePath cached = lookup(key);
+    if (cached != null) {
+      hits.incrementAndGet();
+      report();
+      return new RoutePlan(cached);
+    }
+
+    misses.incrementAndGet();
+    report();
+    RoutePlan plan = delegate.computeRoute(from, to, snapStart);
+    if (plan != null) {
+      store(key, plan.path());
+    }
+    return plan;
+  }
+
+  public long hitCount() {
+    return hits.get();
+  }
+
+  public long missCount() {
+    return misses.get();
+  }
+
+  /** Entrees retirees, par manque de place ou expiration. */
+  public long evictionCount() {
+    return evictions.get();
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private RoutePath lookup(RouteKey key) {
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (nanoTime.getAsLong() - entry.storedNanos() >= ttlNanos) {
+        entries.remove(key);
+        evictions.incrementAndGet();
+        return null;
+      }
+      return entry.path();
+    }
+  }
+
+  private void store(RouteKey key, RoutePath path) {
+    synchronized (entries) {
+      entries.put(key, new Entry(path, nanoTime.getAsLong()));
+      Iterator<Entry> eldest = entries.values().iterator();
+      while (entries.size() > maxEntries) {
+        eldest.next();
+        eldest.remove();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  private void report() {
+    long lookups = hits.get() + misses.get();
+    if (lookups % REPORT_EVERY != 0) {
+      return;
+    }
+    logger.info(
+        "Cache d'itineraires: "
+            + hits.get()
+            + " succes, "
+            + misses.get()
+            + " echecs, "
+            + evictions.get()
+            + " evictions, "
+            + size()
+            + " entrees");
+  }
+
+  private record Entry(RoutePath path, long storedNanos) {}
+}
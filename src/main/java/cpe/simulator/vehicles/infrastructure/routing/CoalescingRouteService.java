@@ -0,0 +1,122 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.RoutePath;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Regroupe les demandes d'itineraire identiques en cours (meme {@link RouteKey}) : seul le
+ * premier appelant interroge le service suivant, les autres attendent son resultat.
+ *
+ * <p>Utile quand plusieurs engins d'une meme caserne partent ensemble, ou quand toute une phase
+ * rentre a la fois : le cache ne sert qu'une fois le premier trajet revenu. Chaque appelant recoit
+ * son propre {@link RoutePlan} sur la geometrie partagee ; un echec est propage a tous.
+ *
+ * <p>L'interruption du premier appelant ne concerne que lui : sa demande est annulee et retiree,
+ * et l'un des appelants en attente la relance a sa place.
+ */
+public final class CoalescingRouteService implements RouteService {
+
+  private static final long REPORT_EVERY = 10L;
+
+  private final RouteService delegate;
+  private final Logger logger;
+  private final double gridMeters;
+  private final ConcurrentMap<RouteKey, CompletableFuture<RoutePath>> inFlight =
+      new ConcurrentHashMap<>();
+  private final AtomicLong issued = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+
+  public CoalescingRouteService(RouteService delegate, Logger logger, double gridMeters) {
+    this.delegate = delegate;
+    this.logger = logger;
+    this.gridMeters = gridMeters;
+  }
+
+  @Override
+  public RoutePlan computeRoute(GeoPoint from, GeoPoint to, boolean snapStart) throws Exception {
+    if (from == null || to == null) {
+      return null;
+    }
+    RouteKey key = RouteKey.of(from, to, snapStart, gridMeters);
+    while (true) {
+      CompletableFuture<RoutePath> flight = new CompletableFuture<>();
+      CompletableFuture<RoutePath> existing = inFlight.putIfAbsent(key, flight);
+      if (existing == null) {
+        return lead(key, flight, from, to, snapStart);
+      }
+      if (coalesced.incrementAndGet() % REPORT_EVERY == 0) {
+        logger.info(
+            "Itineraires regroupes: "
+                + coalesced.get()
+                + " demandes servies par "
+                + issued.get()
+                + " appels");
+      }
+      try {
+        return await(existing);
+      } catch (CancellationException e) {
+        // Demande abandonnee par un appelant interrompu : on la reprend.
+      }
+    }
+  }
+
+  private RoutePlan lead(
+      RouteKey key,
+      CompletableFuture<RoutePath> flight,
+      GeoPoint from,
+      GeoPoint to,
+      boolean snapStart)
+      throws Exception {
+    issued.incrementAndGet();
+    try {
+      RoutePlan plan = delegate.computeRoute(from, to, snapStart);
+      flight.complete(plan == null ? null : plan.path());
+      return plan;
+    } catch (Exception | Error e) {
+      if (e instanceof InterruptedException
+          || e instanceof CancellationException
+          || Thread.currentThread().isInterrupted()) {
+        // Retiree avant l'annulation : un appelant reveille ne doit pas la retrouver.
+        inFlight.remove(key, flight);
+        flight.cancel(false);
+      } else {
+        flight.completeExceptionally(e);
+      }
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /** Demandes transmises au service suivant. */
+  public long issuedCount() {
+    return issued.get();
+  }
+
+  /** Demandes servies par une demande identique deja en cours. */
+  public long coalescedCount() {
+    return coalesced.get();
+  }
+
+  private static RoutePlan await(CompletableFuture<RoutePath> flight) throws Exception {
+    RoutePath path;
+    try {
+      path = flight.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    return path == null ? null : new RoutePlan(path);
+  }
+}
@@ -0,0 +1,604 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.RoutePath;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Itineraires conserves sur disque entre deux demarrages, devant un autre {@link RouteService}.
+ *
+ * <p>Deux fichiers dans le repertoire :
+ *
+ * <ul>
+ *   <li>{@code routes.dat}, en ajout seul : un enregistrement par trajet (cle {@link RouteKey},
+ *       date d'ecriture, duree, points en virgule fixe) suivi d'un CRC32 ;
+ *   <li>{@code routes.idx}, table de hachage a adressage ouvert projetee en memoire : empreinte de
+ *       la cle et position de l'enregistrement dans le fichier de donnees.
+ * </ul>
+ *
+ * <p>L'en-tete de l'index retient la longueur des donnees qu'il couvre : au demarrage, les
+ * enregistrements ecrits apres (arret brutal entre les deux ecritures) sont reindexes, et le
+ * fichier est tronque au premier enregistrement invalide. Un index absent ou illisible est
+ * reconstruit en relisant les donnees. Un index agrandi est ecrit a part (entrees, puis en-tete)
+ * et ne remplace l'ancien qu'une fois complet sur disque.
+ *
+ * <p>Un trajet trop ancien est recalcule et reecrit ; l'ancien enregistrement devient du dechet.
+ * Quand le dechet depasse les donnees vivantes, un thread de fond recopie les enregistrements
+ * vivants dans un nouveau fichier puis bascule sous le verrou.
+ */
+public final class DiskRouteStore implements RouteService, Closeable {
+
+  private static final String DATA_FILE = "routes.dat";
+  private static final String INDEX_FILE = "routes.idx";
+  private static final int INDEX_MAGIC = 0x52544958;
+  private static final int INDEX_VERSION = 1;
+  private static final int INDEX_HEADER_BYTES = 32;
+  private static final int SLOT_BYTES = 16;
+  private static final int INITIAL_CAPACITY = 1_024;
+  private static final int KEY_BYTES = 4 * Long.BYTES + 1;
+  private static final int RECORD_HEADER_BYTES = KEY_BYTES + 2 * Long.BYTES + Integer.BYTES;
+  private static final int MAX_POINTS = 1_000_000;
+  private static final long COMPACT_MIN_GARBAGE_BYTES = 1L << 20;
+
+  private final Path directory;
+  private final RouteService delegate;
+  private final Logger logger;
+  private final double gridMeters;
+  private final long maxAgeMs;
+  private final LongSupplier currentTimeMs;
+  private final long compactMinGarbageBytes;
+  private final ExecutorService compactor;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong compactions = new AtomicLong();
+
+  private FileChannel data;
+  private FileChannel indexChannel;
+  private MappedByteBuffer index;
+  private int capacity;
+  private int size;
+  private long dataLength;
+  private long liveBytes;
+  private boolean compacting;
+
+  private DiskRouteStore(
+      Path directory,
+      RouteService delegate,
+      Logger logger,
+      double gridMeters,
+      long maxAgeMs,
+      LongSupplier currentTimeMs,
+      long compactMinGarbageBytes) {
+    this.directory = directory;
+    this.delegate = delegate;
+    this.logger = logger;
+    this.gridMeters = gridMeters;
+    this.maxAgeMs = maxAgeMs > 0 ? maxAgeMs : Long.MAX_VALUE;
+    this.currentTimeMs = currentTimeMs;
+    this.compactMinGarbageBytes = compactMinGarbageBytes;
+    this.compactor =
+        Executors.newSingleThreadExecutor(
+            task -> {
+              Thread thread = new Thread(task, "route-store-compactor");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Ouvre (ou cree) le magasin du repertoire donne.
+   *
+   * @param maxAgeMs age au-dela duquel un trajet est recalcule, {@code 0} pour le garder toujours
+   */
+  public static DiskRouteStore open(
+      Path directory, RouteService delegate, Logger logger, double gridMeters, long maxAgeMs)
+      throws IOException {
+    return open(
+        directory,
+        delegate,
+        logger,
+        gridMeters,
+        maxAgeMs,
+        System::currentTimeMillis,
+        COMPACT_MIN_GARBAGE_BYTES);
+  }
+
+  static DiskRouteStore open(
+      Path directory,
+      RouteService delegate,
+      Logger logger,
+      double gridMeters,
+      long maxAgeMs,
+      LongSupplier currentTimeMs,
+      long compactMinGarbageBytes)
+      throws IOException {
+    Files.createDirectories(directory);
+    DiskRouteStore store =
+        new DiskRouteStore(
+            directory,
+            delegate,
+            logger,
+            gridMeters,
+            maxAgeMs,
+            currentTimeMs,
+            compactMinGarbageBytes);
+    store.load();
+    logger.info("Itineraires sur disque: " + store.size() + " trajets dans " + directory);
+    return store;
+  }
+
+  @Override
+  public RoutePlan computeRoute(GeoPoint from, GeoPoint to, boolean snapStart) throws Exception {
+    if (from == null || to == null) {
+      return null;
+    }
+    RouteKey key = RouteKey.of(from, to, snapStart, gridMeters);
+    RoutePath stored = null;
+    try {
+      stored = find(key);
+    } catch (IOException e) {
+      // Magasin illisible : le trajet est redemande au service suivant.
+      logger.warn("Lecture de l'itineraire sur disque impossible: " + e.getMessage());
+    }
+    if (stored != null) {
+      hits.incrementAndGet();
+      return new RoutePlan(stored);
+    }
+
+    misses.incrementAndGet();
+    RoutePlan plan = delegate.computeRoute(from, to, snapStart);
+    if (plan != null) {
+      try {
+        store(key, plan.path());
+      } catch (IOException e) {
+        logger.warn("Ecriture de l'itineraire sur disque impossible: " + e.getMessage());
+      }
+    }
+    return plan;
+  }
+
+  public long hitCount() {
+    return hits.get();
+  }
+
+  public long missCount() {
+    return misses.get();
+  }
+
+  public long compactionCount() {
+    return compactions.get();
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /** Taille du fichier de donnees, dechet compris. */
+  public synchronized long dataBytes() {
+    return dataLength;
+  }
+
+  @Override
+  public void close() throws IOException {
+    compactor.shutdownNow();
+    synchronized (this) {
+      index.force();
+      indexChannel.close();
+      data.close();
+    }
+  }
+
+  private synchronized RoutePath find(RouteKey key) throws IOException {
+    long hash = key.hash64();
+    for (int slot = slotFor(hash); ; slot = (slot + 1) & (capacity - 1)) {
+      long slotHash = slotHash(slot);
+      if (slotHash == 0L) {
+        return null;
+      }
+      if (slotHash == hash) {
+        Record record = readRecord(slotOffset(slot));
+        if (record != null && record.key().equals(key)) {
+          if (currentTimeMs.getAsLong() - record.storedAtMs() >= maxAgeMs) {
+            return null;
+          }
+          return RoutePath.intern(
+              record.latitudesE7(), record.longitudesE7(), record.durationSeconds());
+        }
+      }
+    }
+  }
+
+  private synchronized void store(RouteKey key, RoutePath path) throws IOException {
+    ByteBuffer record = encode(key, currentTimeMs.getAsLong(), path);
+    long offset = dataLength;
+    int length = record.remaining();
+    while (record.hasRemaining()) {
+      data.write(record, offset + record.position());
+    }
+    data.force(false);
+    liveBytes += length;
+    // L'index couvre l'enregistrement une fois range : un agrandissement entre-temps ne doit pas
+    // l'annoncer dans son en-tete.
+    indexRecord(key, offset, length);
+    dataLength += length;
+    writeHeader();
+    scheduleCompactionIfNeeded();
+  }
+
+  /** Range l'enregistrement dans l'index, en remplacant celui de la meme cle s'il existe. */
+  private void indexRecord(RouteKey key, long offset, int length) throws IOException {
+    if ((size + 1) * 2L > capacity) {
+      resizeIndex(capacity * 2);
+    }
+    long hash = key.hash64();
+    for (int slot = slotFor(hash); ; slot = (slot + 1) & (capacity - 1)) {
+      long slotHash = slotHash(slot);
+      if (slotHash == 0L) {
+        writeSlot(slot, hash, offset);
+        size++;
+        return;
+      }
+      if (slotHash == hash) {
+        long previous = slotOffset(slot);
+        Record record = readRecord(previous);
+        if (record == null || record.key().equals(key)) {
+          liveBytes -= record == null ? recordLength(previous) : record.length();
+          writeSlot(slot, hash, offset);
+          return;
+        }
+      }
+    }
+  }
+
+  private void load() throws IOException {
+    data =
+        FileChannel.open(
+            directory.resolve(DATA_FILE),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    Path indexPath = directory.resolve(INDEX_FILE);
+    if (Files.exists(indexPath) && mapExistingIndex(indexPath) && dataLength <= data.size()) {
+      if (dataLength < data.size()) {
+        logger.warn("Index des itineraires en retard sur les donnees, reprise de la fin");
+        recoverFrom(dataLength);
+      }
+      return;
+    }
+    if (data.size() > 0) {
+      logger.warn("Index des itineraires absent ou invalide, reconstruction");
+    }
+    dataLength = 0L;
+    liveBytes = 0L;
+    writeIndex(INITIAL_CAPACITY, new long[0], new long[0], 0);
+    recoverFrom(0L);
+  }
+
+  /** Reindexe les enregistrements valides a partir de {@code offset} et tronque le reste. */
+  private void recoverFrom(long offset) throws IOException {
+    long fileSize = data.size();
+    while (offset < fileSize) {
+      Record record = readRecord(offset);
+      if (record == null) {
+        logger.warn("Itineraires sur disque tronques a " + offset + " octets");
+        data.truncate(offset);
+        break;
+      }
+      liveBytes += record.length();
+      indexRecord(record.key(), offset, record.length());
+      offset += record.length();
+    }
+    dataLength = offset;
+    writeHeader();
+  }
+
+  private boolean mapExistingIndex(Path indexPath) throws IOException {
+    indexChannel =
+        FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long fileSize = indexChannel.size();
+    if (fileSize < INDEX_HEADER_BYTES) {
+      return false;
+    }
+    MappedByteBuffer mapped = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+    int slots = mapped.getInt(8);
+    if (mapped.getInt(0) != INDEX_MAGIC
+        || mapped.getInt(4) != INDEX_VERSION
+        || slots <= 0
+        || Integer.bitCount(slots) != 1
+        || fileSize != INDEX_HEADER_BYTES + (long) slots * SLOT_BYTES) {
+      return false;
+    }
+    index = mapped;
+    capacity = slots;
+    size = mapped.getInt(12);
+    dataLength = mapped.getLong(16);
+    liveBytes = mapped.getLong(24);
+    return true;
+  }
+
+  /**
+   * Ecrit dans un fichier temporaire un index des entrees donnees, puis le met en place. Les
+   * entrees sont forcees sur disque avant l'en-tete, et l'en-tete (qui annonce la longueur des
+   * donnees couvertes) avant le remplacement : un arret brutal laisse soit l'ancien index, soit
+   * le nouveau complet.
+   */
+  private void writeIndex(int slots, long[] hashes, long[] offsets, int count)
+      throws IOException {
+    Path temporary = directory.resolve(INDEX_FILE + ".tmp");
+    FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    MappedByteBuffer mapped =
+        channel.map(
+            FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES + (long) slots * SLOT_BYTES);
+    FileChannel previousChannel = indexChannel;
+    index = mapped;
+    indexChannel = channel;
+    capacity = slots;
+    for (int k = 0; k < count; k++) {
+      int slot = slotFor(hashes[k]);
+      while (slotHash(slot) != 0L) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      writeSlot(slot, hashes[k], offsets[k]);
+    }
+    size = count;
+    index.force();
+    writeHeader();
+    index.force();
+    // L'ancienne projection n'est plus referencee : le ramasse-miettes la liberera.
+    if (previousChannel != null) {
+      previousChannel.close();
+    }
+    Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private void resizeIndex(int slots) throws IOException {
+    long[] hashes = new long[size];
+    long[] offsets = new long[size];
+    int count = 0;
+    for (int slot = 0; slot < capacity; slot++) {
+      if (slotHash(slot) != 0L) {
+        hashes[count] = slotHash(slot);
+        offsets[count++] = slotOffset(slot);
+      }
+    }
+    writeIndex(slots, hashes, offsets, count);
+  }
+
+  private void scheduleCompactionIfNeeded() {
+    long garbage = dataLength - liveBytes;
+    if (compacting || garbage < compactMinGarbageBytes || garbage < liveBytes) {
+      return;
+    }
+    compacting = true;
+    compactor.execute(this::compact);
+  }
+
+  /**
+   * Recopie les enregistrements vivants dans un nouveau fichier. La copie se fait hors verrou
+   * (les donnees ne sont jamais modifiees, seulement prolongees) ; seuls les ajouts faits entre
+   * temps et la bascule des fichiers sont faits sous le verrou.
+   */
+  private void compact() {
+    Path temporary = directory.resolve(DATA_FILE + ".compact");
+    try (FileChannel out =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      long snapshotLength;
+      long[] offsets;
+      synchronized (this) {
+        snapshotLength = dataLength;
+        offsets = liveOffsets();
+      }
+      Arrays.sort(offsets);
+      Map<Long, Long> moved = new HashMap<>();
+      long position = 0L;
+      for (long offset : offsets) {
+        position += copyRecord(offset, out, position, moved);
+      }
+
+      synchronized (this) {
+        for (long offset : liveOffsets()) {
+          if (offset >= snapshotLength) {
+            position += copyRecord(offset, out, position, moved);
+          }
+        }
+        out.force(true);
+        // L'ancien fichier reste en service tant que le nouveau n'est pas ouvert et en place.
+        FileChannel compacted =
+            FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+          Files.move(
+              temporary, directory.resolve(DATA_FILE), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+          compacted.close();
+          throw e;
+        }
+        FileChannel previous = data;
+        data = compacted;
+        previous.close();
+        long live = 0L;
+        for (int slot = 0; slot < capacity; slot++) {
+          if (slotHash(slot) != 0L) {
+            long offset = moved.get(slotOffset(slot));
+            writeSlot(slot, slotHash(slot), offset);
+            live += recordLength(offset);
+          }
+        }
+        long before = dataLength;
+        dataLength = position;
+        liveBytes = live;
+        writeHeader();
+        index.force();
+        compactions.incrementAndGet();
+        logger.info("Itineraires sur disque compactes: " + before + " -> " + position + " octets");
+      }
+    } catch (IOException e) {
+      logger.warn("Compactage des itineraires impossible: " + e.getMessage());
+    } finally {
+      synchronized (this) {
+        compacting = false;
+      }
+    }
+  }
+
+  private long copyRecord(long offset, FileChannel out, long position, Map<Long, Long> moved)
+      throws IOException {
+    int length = recordLength(offset);
+    long copied = 0L;
+    while (copied < length) {
+      copied += data.transferTo(offset + copied, length - copied, out);
+    }
+    moved.put(offset, position);
+    return length;
+  }
+
+  private synchronized long[] liveOffsets() {
+    long[] offsets = new long[size];
+    int count = 0;
+    for (int slot = 0; slot < capacity; slot++) {
+      if (slotHash(slot) != 0L) {
+        offsets[count++] = slotOffset(slot);
+      }
+    }
+    return offsets;
+  }
+
+  private static ByteBuffer encode(RouteKey key, long storedAtMs, RoutePath path) {
+    int count = path.pointCount();
+    ByteBuffer buffer =
+        ByteBuffer.allocate(RECORD_HEADER_BYTES + count * 2 * Integer.BYTES + Integer.BYTES);
+    buffer.putLong(key.fromLatCell());
+    buffer.putLong(key.fromLonCell());
+    buffer.putLong(key.toLatCell());
+    buffer.putLong(key.toLonCell());
+    buffer.put((byte) (key.snapStart() ? 1 : 0));
+    buffer.putLong(storedAtMs);
+    buffer.putDouble(path.durationSeconds());
+    buffer.putInt(count);
+    for (int k = 0; k < count; k++) {
+      buffer.putInt(path.latitudeE7(k));
+      buffer.putInt(path.longitudeE7(k));
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, buffer.position());
+    buffer.putInt((int) crc.getValue());
+    return buffer.flip();
+  }
+
+  /** Relit l'enregistrement a {@code offset}, {@code null} s'il est incomplet ou corrompu. */
+  private Record readRecord(long offset) throws IOException {
+    int length = recordLength(offset);
+    if (length < 0) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    if (!readFully(buffer, offset)) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, length - Integer.BYTES);
+    if (buffer.getInt(length - Integer.BYTES) != (int) crc.getValue()) {
+      return null;
+    }
+    long fromLatCell = buffer.getLong();
+    long fromLonCell = buffer.getLong();
+    long toLatCell = buffer.getLong();
+    long toLonCell = buffer.getLong();
+    RouteKey key = new RouteKey(fromLatCell, fromLonCell, toLatCell, toLonCell, buffer.get() == 1);
+    long storedAtMs = buffer.getLong();
+    double durationSeconds = buffer.getDouble();
+    int count = buffer.getInt();
+    int[] latitudesE7 = new int[count];
+    int[] longitudesE7 = new int[count];
+    for (int k = 0; k < count; k++) {
+      latitudesE7[k] = buffer.getInt();
+      longitudesE7[k] = buffer.getInt();
+    }
+    return new Record(key, storedAtMs, durationSeconds, latitudesE7, longitudesE7, length);
+  }
+
+  /** Longueur de l'enregistrement a {@code offset} d'apres son en-tete, {@code -1} si illisible. */
+  private int recordLength(long offset) throws IOException {
+    ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+    if (!readFully(count, offset + RECORD_HEADER_BYTES - Integer.BYTES)) {
+      return -1;
+    }
+    int points = count.getInt(0);
+    if (points < 0 || points > MAX_POINTS) {
+      return -1;
+    }
+    return RECORD_HEADER_BYTES + points * 2 * Integer.BYTES + Integer.BYTES;
+  }
+
+  private boolean readFully(ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (data.read(buffer, offset + buffer.position()) < 0) {
+        return false;
+      }
+    }
+    buffer.flip();
+    return true;
+  }
+
+  private void writeHeader() {
+    index.putInt(0, INDEX_MAGIC);
+    index.putInt(4, INDEX_VERSION);
+    index.putInt(8, capacity);
+    index.putInt(12, size);
+    index.putLong(16, dataLength);
+    index.putLong(24, liveBytes);
+  }
+
+  private int slotFor(long hash) {
+    return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+  }
+
+  private long slotHash(int slot) {
+    return index.getLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES);
+  }
+
+  private long slotOffset(int slot) {
+    return index.getLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES + Long.BYTES);
+  }
+
+  private void writeSlot(int slot, long hash, long offset) {
+    index.putLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES + Long.BYTES, offset);
+    index.putLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES, hash);
+  }
+
+  private record Record(
+      RouteKey key,
+      long storedAtMs,
+      double durationSeconds,
+      int[] latitudesE7,
+      int[] longitudesE7,
+      int length) {}
+}
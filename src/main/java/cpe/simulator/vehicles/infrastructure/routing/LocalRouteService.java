@@ -0,0 +1,425 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.GeoMath;
+import cpe.simulator.vehicles.core.RoutePath;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service de routage local : plus court chemin sur un {@link RoadGraph} projete en memoire, sans
+ * appel a l'API QG.
+ *
+ * <p>Les points de depart et d'arrivee sont rattaches au noeud le plus proche via une grille de
+ * cellules d'environ {@value #SNAP_CELL_METERS} m. La recherche est un A* bidirectionnel a
+ * potentiels moyens ({@code (h_arrivee(v) - h_depart(v)) / 2}, distance a vol d'oiseau) : les
+ * deux fronts restent coherents et la recherche s'arrete des que la somme de leurs minima atteint
+ * le meilleur chemin connu.
+ *
+ * <p>Les tableaux de recherche (distances, predecesseurs, tas) sont recycles entre appels et
+ * invalides par un numero de passe plutot que remis a zero ; un pool remplace le {@code
+ * ThreadLocal}, chaque demande tournant sur son propre thread virtuel. Les recherches simultanees
+ * sont limitees au nombre de processeurs : au-dela elles ne vont pas plus vite, et le pool ne
+ * garde jamais plus de jeux de tableaux que de recherches simultanees.
+ */
+public final class LocalRouteService implements RouteService {
+
+  private static final double SNAP_CELL_METERS = 200.0;
+  private static final int MAX_SNAP_RINGS = 25;
+  private static final double METERS_PER_DEGREE = 111_320.0;
+  private static final double E7 = 1e7;
+
+  private final RoadGraph graph;
+  private final Logger logger;
+  private final double cellLatDegrees;
+  private final double cellLonDegrees;
+  /** {@code (cle de cellule << 32) | noeud}, trie : les noeuds d'une cellule sont contigus. */
+  private final long[] snapIndex;
+
+  private final Queue<Search> searches = new ConcurrentLinkedQueue<>();
+  private final Semaphore searchPermits =
+      new Semaphore(Runtime.getRuntime().availableProcessors());
+
+  public LocalRouteService(RoadGraph graph, Logger logger) {
+    this.graph = graph;
+    this.logger = logger;
+    int nodes = graph.nodeCount();
+    double latitudeSum = 0.0;
+    for (int n = 0; n < nodes; n++) {
+      latitudeSum += graph.latitude(n);
+    }
+    double referenceLatitude = nodes == 0 ? 0.0 : latitudeSum / nodes;
+    this.cellLatDegrees = SNAP_CELL_METERS / METERS_PER_DEGREE;
+    this.cellLonDegrees =
+        cellLatDegrees / Math.max(0.01, Math.cos(Math.toRadians(referenceLatitude)));
+    this.snapIndex = new long[nodes];
+    for (int n = 0; n < nodes; n++) {
+      int key = cellKey(cellRow(graph.latitude(n)), cellColumn(graph.longitude(n)));
+      snapIndex[n] = ((long) key << 32) | n;
+    }
+    Arrays.sort(snapIndex);
+  }
+
+  /**
+   * Ouvre le graphe {@code graphFile}, reconstruit au prealable depuis {@code geojson} s'il est
+   * absent ou plus ancien que lui.
+   *
+   * @param geojson reseau routier source, {@code null} pour utiliser le graphe tel quel
+   */
+  public static LocalRouteService open(
+      Path graphFile, Path geojson, ObjectMapper mapper, Logger logger) throws IOException {
+    if (geojson != null
+        && (Files.notExists(graphFile)
+            || Files.getLastModifiedTime(graphFile)
+                    .compareTo(Files.getLastModifiedTime(geojson))
+                < 0)) {
+      logger.info("Construction du graphe routier depuis " + geojson);
+      RoadGraphBuilder.build(geojson, graphFile, mapper);
+    }
+    RoadGraph graph = RoadGraph.open(graphFile);
+    logger.info(
+        "Graphe routier charge: "
+            + graph.nodeCount()
+            + " noeuds, "
+            + graph.edgeCount()
+            + " aretes");
+    return new LocalRouteService(graph, logger);
+  }
+
+  @Override
+  public RoutePlan computeRoute(GeoPoint from, GeoPoint to, boolean snapStart)
+      throws InterruptedException {
+    if (from == null || to == null) {
+      return null;
+    }
+    int source = nearestNode(from.latitude(), from.longitude());
+    int target = nearestNode(to.latitude(), to.longitude());
+    if (source < 0 || target < 0) {
+      logger.warn("Itineraire local impossible: point hors du graphe routier");
+      return null;
+    }
+
+    searchPermits.acquire();
+    Search search = searches.poll();
+    try {
+      if (search == null) {
+        search = new Search(graph.nodeCount());
+      }
+      int[] nodes = search.run(source, target);
+      if (nodes == null) {
+        logger.warn("Itineraire local introuvable entre les noeuds " + source + " et " + target);
+        return null;
+      }
+      return toPlan(from, to, snapStart, nodes);
+    } finally {
+      if (search != null) {
+        searches.offer(search);
+      }
+      searchPermits.release();
+    }
+  }
+
+  /** Jeux de tableaux de recherche gardes pour les appels suivants. */
+  int pooledSearchCount() {
+    return searches.size();
+  }
+
+  /** Noeud le plus proche de la position donnee, {@code -1} si aucun a portee. */
+  int nearestNode(double latitude, double longitude) {
+    int row = cellRow(latitude);
+    int column = cellColumn(longitude);
+    int best = -1;
+    double bestMeters = Double.POSITIVE_INFINITY;
+    for (int ring = 0; ring <= MAX_SNAP_RINGS; ring++) {
+      for (int dr = -ring; dr <= ring; dr++) {
+        boolean edgeRow = Math.abs(dr) == ring;
+        for (int dc = -ring; dc <= ring; dc += edgeRow ? 1 : 2 * ring) {
+          long from = (long) cellKey(row + dr, column + dc) << 32;
+          int k = lowerBound(from);
+          for (; k < snapIndex.length && snapIndex[k] >>> 32 == from >>> 32; k++) {
+            int node = (int) snapIndex[k];
+            double meters =
+                GeoMath.distanceMeters(
+                    latitude, longitude, graph.latitude(node), graph.longitude(node));
+            if (meters < bestMeters) {
+              bestMeters = meters;
+              best = node;
+            }
+          }
+        }
+      }
+      // Tout noeud d'un anneau suivant est a au moins ring cellules de distance.
+      if (best >= 0 && bestMeters <= ring * SNAP_CELL_METERS) {
+        break;
+      }
+    }
+    return best;
+  }
+
+  private RoutePlan toPlan(GeoPoint from, GeoPoint to, boolean snapStart, int[] nodes) {
+    int count = nodes.length + (snapStart ? 1 : 2);
+    int[] latitudesE7 = new int[count];
+    int[] longitudesE7 = new int[count];
+    int size = 0;
+    if (!snapStart) {
+      latitudesE7[0] = (int) Math.round(from.latitude() * E7);
+      longitudesE7[0] = (int) Math.round(from.longitude() * E7);
+      size = 1;
+    }
+    for (int node : nodes) {
+      size = append(latitudesE7, longitudesE7, size, graph.latitude(node), graph.longitude(node));
+    }
+    size = append(latitudesE7, longitudesE7, size, to.latitude(), to.longitude());
+    return new RoutePlan(
+        RoutePath.intern(
+            Arrays.copyOf(latitudesE7, size), Arrays.copyOf(longitudesE7, size), Double.NaN));
+  }
+
+  /** Ajoute le point s'il differe du precedent. */
+  private static int append(
+      int[] latitudesE7, int[] longitudesE7, int size, double latitude, double longitude) {
+    int latE7 = (int) Math.round(latitude * E7);
+    int lonE7 = (int) Math.round(longitude * E7);
+    if (size > 0 && latitudesE7[size - 1] == latE7 && longitudesE7[size - 1] == lonE7) {
+      return size;
+    }
+    latitudesE7[size] = latE7;
+    longitudesE7[size] = lonE7;
+    return size + 1;
+  }
+
+  private int lowerBound(long value) {
+    int k = Arrays.binarySearch(snapIndex, value);
+    return k >= 0 ? k : -k - 1;
+  }
+
+  private int cellRow(double latitude) {
+    return (int) Math.floor(latitude / cellLatDegrees);
+  }
+
+  private int cellColumn(double longitude) {
+    return (int) Math.floor(longitude / cellLonDegrees);
+  }
+
+  /** Cle sur 32 bits ; deux cellules distantes de 65536 rangs partagent la meme cle, sans gene. */
+  private static int cellKey(int row, int column) {
+    return (row & 0xffff) << 16 | (column & 0xffff);
+  }
+
+  /** Etat d'une recherche, reutilise d'un appel a l'autre. */
+  private final class Search {
+
+    private final double[] forwardMeters;
+    private final double[] reverseMeters;
+    private final int[] forwardParent;
+    private final int[] reverseParent;
+    private final int[] forwardStamp;
+    private final int[] reverseStamp;
+    private final Heap forwardHeap = new Heap();
+    private final Heap reverseHeap = new Heap();
+    private int stamp;
+
+    private double sourceLat;
+    private double sourceLon;
+    private double targetLat;
+    private double targetLon;
+
+    Search(int nodes) {
+      forwardMeters = new double[nodes];
+      reverseMeters = new double[nodes];
+      forwardParent = new int[nodes];
+      reverseParent = new int[nodes];
+      forwardStamp = new int[nodes];
+      reverseStamp = new int[nodes];
+    }
+
+    /** Noeuds du plus court chemin de {@code source} a {@code target}, {@code null} si aucun. */
+    int[] run(int source, int target) {
+      if (source == target) {
+        return new int[] {source};
+      }
+      if (++stamp == 0) {
+        Arrays.fill(forwardStamp, 0);
+        Arrays.fill(reverseStamp, 0);
+        stamp = 1;
+      }
+      forwardHeap.clear();
+      reverseHeap.clear();
+      sourceLat = graph.latitude(source);
+      sourceLon = graph.longitude(source);
+      targetLat = graph.latitude(target);
+      targetLon = graph.longitude(target);
+
+      reach(forwardMeters, forwardParent, forwardStamp, source, 0.0, -1);
+      forwardHeap.push(potential(source), source);
+      reach(reverseMeters, reverseParent, reverseStamp, target, 0.0, -1);
+      reverseHeap.push(-potential(target), target);
+
+      double best = Double.POSITIVE_INFINITY;
+      int meeting = -1;
+      while (!forwardHeap.isEmpty() && !reverseHeap.isEmpty()) {
+        if (forwardHeap.topKey() + reverseHeap.topKey() >= best) {
+          break;
+        }
+        if (forwardHeap.topKey() <= reverseHeap.topKey()) {
+          double key = forwardHeap.topKey();
+          int node = forwardHeap.pop();
+          double meters = forwardMeters[node];
+          if (key > meters + potential(node)) {
+            continue;
+          }
+          for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+            int next = graph.target(e);
+            double candidate = meters + graph.meters(e);
+            if (forwardStamp[next] == stamp && forwardMeters[next] <= candidate) {
+              continue;
+            }
+            reach(forwardMeters, forwardParent, forwardStamp, next, candidate, node);
+            forwardHeap.push(candidate + potential(next), next);
+            if (reverseStamp[next] == stamp && candidate + reverseMeters[next] < best) {
+              best = candidate + reverseMeters[next];
+              meeting = next;
+            }
+          }
+        } else {
+          double key = reverseHeap.topKey();
+          int node = reverseHeap.pop();
+          double meters = reverseMeters[node];
+          if (key > meters - potential(node)) {
+            continue;
+          }
+          for (int e = graph.firstReverseEdge(node), end = graph.endReverseEdge(node);
+              e < end;
+              e++) {
+            int previous = graph.source(e);
+            double candidate = meters + graph.reverseMeters(e);
+            if (reverseStamp[previous] == stamp && reverseMeters[previous] <= candidate) {
+              continue;
+            }
+            reach(reverseMeters, reverseParent, reverseStamp, previous, candidate, node);
+            reverseHeap.push(candidate - potential(previous), previous);
+            if (forwardStamp[previous] == stamp && candidate + forwardMeters[previous] < best) {
+              best = candidate + forwardMeters[previous];
+              meeting = previous;
+            }
+          }
+        }
+      }
+      return meeting < 0 ? null : path(meeting);
+    }
+
+    private void reach(
+        double[] meters, int[] parent, int[] stamps, int node, double value, int from) {
+      meters[node] = value;
+      parent[node] = from;
+      stamps[node] = stamp;
+    }
+
+    /** Potentiel moyen : la moitie de l'ecart entre distances a l'arrivee et au depart. */
+    private double potential(int node) {
+      double latitude = graph.latitude(node);
+      double longitude = graph.longitude(node);
+      return (GeoMath.distanceMeters(latitude, longitude, targetLat, targetLon)
+              - GeoMath.distanceMeters(sourceLat, sourceLon, latitude, longitude))
+          / 2.0;
+    }
+
+    private int[] path(int meeting) {
+      int length = 0;
+      for (int node = meeting; node >= 0; node = forwardParent[node]) {
+        length++;
+      }
+      for (int node = reverseParent[meeting]; node >= 0; node = reverseParent[node]) {
+        length++;
+      }
+      int[] nodes = new int[length];
+      int k = 0;
+      for (int node = meeting; node >= 0; node = forwardParent[node]) {
+        nodes[k++] = node;
+      }
+      for (int i = 0, j = k - 1; i < j; i++, j--) {
+        int swap = nodes[i];
+        nodes[i] = nodes[j];
+        nodes[j] = swap;
+      }
+      for (int node = reverseParent[meeting]; node >= 0; node = reverseParent[node]) {
+        nodes[k++] = node;
+      }
+      return nodes;
+    }
+  }
+
+  /** Tas binaire minimal a suppression paresseuse (les entrees perimees sont ignorees). */
+  private static final class Heap {
+
+    private double[] keys = new double[256];
+    private int[] nodes = new int[256];
+    private int size;
+
+    void clear() {
+      size = 0;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    double topKey() {
+      return keys[0];
+    }
+
+    void push(double key, int node) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        nodes = Arrays.copyOf(nodes, size * 2);
+      }
+      int k = size++;
+      while (k > 0) {
+        int parent = (k - 1) >>> 1;
+        if (keys[parent] <= key) {
+          break;
+        }
+        keys[k] = keys[parent];
+        nodes[k] = nodes[parent];
+        k = parent;
+      }
+      keys[k] = key;
+      nodes[k] = node;
+    }
+
+    int pop() {
+      int top = nodes[0];
+      size--;
+      double key = keys[size];
+      int node = nodes[size];
+      int k = 0;
+      while (true) {
+        int child = 2 * k + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && keys[child + 1] < keys[child]) {
+          child++;
+        }
+        if (keys[child] >= key) {
+          break;
+        }
+        keys[k] = keys[child];
+        nodes[k] = nodes[child];
+        k = child;
+      }
+      keys[k] = key;
+      nodes[k] = node;
+      return top;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Graphe routier en lecture seule, projete en memoire depuis le fichier ecrit par {@link
+ * RoadGraphBuilder}.
+ *
+ * <p>Format CSR (lignes compressees) : pour chaque noeud, ses aretes sortantes sont contigues et
+ * reperees par {@code offsets[n]..offsets[n + 1]}. Le graphe inverse (aretes entrantes) est range
+ * de la meme facon pour la recherche arriere. Sections, en entiers 32 bits apres un en-tete de
+ * 16 octets : latitudes et longitudes (degres x 1e7), puis offsets, cibles et longueurs (metres,
+ * en flottants) du graphe direct, puis du graphe inverse.
+ *
+ * <p>Rien n'est copie sur le tas : les sections sont lues a travers des vues du fichier projete,
+ * et le systeme ne charge que les pages parcourues.
+ */
+public final class RoadGraph {
+
+  static final int MAGIC = 0x52475048;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 16;
+
+  private static final double E7 = 1e7;
+
+  private final int nodeCount;
+  private final int edgeCount;
+  private final IntBuffer latitudesE7;
+  private final IntBuffer longitudesE7;
+  private final IntBuffer forwardOffsets;
+  private final IntBuffer forwardTargets;
+  private final FloatBuffer forwardMeters;
+  private final IntBuffer reverseOffsets;
+  private final IntBuffer reverseSources;
+  private final FloatBuffer reverseMeters;
+
+  private RoadGraph(ByteBuffer mapped) throws IOException {
+    if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+      throw new IOException("Fichier de graphe routier invalide");
+    }
+    this.nodeCount = mapped.getInt(8);
+    this.edgeCount = mapped.getInt(12);
+    long expected = byteSize(nodeCount, edgeCount);
+    if (nodeCount < 0 || edgeCount < 0 || mapped.capacity() != expected) {
+      throw new IOException("Fichier de graphe routier tronque");
+    }
+    int position = HEADER_BYTES;
+    this.latitudesE7 = ints(mapped, position, nodeCount);
+    position += nodeCount * Integer.BYTES;
+    this.longitudesE7 = ints(mapped, position, nodeCount);
+    position += nodeCount * Integer.BYTES;
+    this.forwardOffsets = ints(mapped, position, nodeCount + 1);
+    position += (nodeCount + 1) * Integer.BYTES;
+    this.forwardTargets = ints(mapped, position, edgeCount);
+    position += edgeCount * Integer.BYTES;
+    this.forwardMeters = mapped.slice(position, edgeCount * Float.BYTES).asFloatBuffer();
+    position += edgeCount * Float.BYTES;
+    this.reverseOffsets = ints(mapped, position, nodeCount + 1);
+    position += (nodeCount + 1) * Integer.BYTES;
+    this.reverseSources = ints(mapped, position, edgeCount);
+    position += edgeCount * Integer.BYTES;
+    this.reverseMeters = mapped.slice(position, edgeCount * Float.BYTES).asFloatBuffer();
+  }
+
+  /** Projette en memoire le fichier de graphe. */
+  public static RoadGraph open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Graphe routier trop grand: " + channel.size() + " octets");
+      }
+      return new RoadGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /** Taille du fichier pour un graphe de {@code nodes} noeuds et {@code edges} aretes. */
+  static long byteSize(int nodes, int edges) {
+    return HEADER_BYTES + (4L * nodes + 2L + 4L * edges) * Integer.BYTES;
+  }
+
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  public double latitude(int node) {
+    return latitudesE7.get(node) / E7;
+  }
+
+  public double longitude(int node) {
+    return longitudesE7.get(node) / E7;
+  }
+
+  int firstEdge(int node) {
+    return forwardOffsets.get(node);
+  }
+
+  int endEdge(int node) {
+    return forwardOffsets.get(node + 1);
+  }
+
+  int target(int edge) {
+    return forwardTargets.get(edge);
+  }
+
+  double meters(int edge) {
+    return forwardMeters.get(edge);
+  }
+
+  int firstReverseEdge(int node) {
+    return reverseOffsets.get(node);
+  }
+
+  int endReverseEdge(int node) {
+    return reverseOffsets.get(node + 1);
+  }
+
+  int source(int reverseEdge) {
+    return reverseSources.get(reverseEdge);
+  }
+
+  double reverseMeters(int reverseEdge) {
+    return reverseMeters.get(reverseEdge);
+  }
+
+  private static IntBuffer ints(ByteBuffer mapped, int position, int count) {
+    return mapped.slice(position, count * Integer.BYTES).asIntBuffer();
+  }
+}
@@ -0,0 +1,220 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cpe.simulator.vehicles.core.GeoMath;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Construit le fichier {@link RoadGraph} a partir d'un reseau routier GeoJSON (par exemple un
+ * extrait OSM converti) : une {@code FeatureCollection} de {@code LineString} ou {@code
+ * MultiLineString}.
+ *
+ * <p>Chaque sommet devient un noeud (les sommets de meme coordonnee a 1e-7 degre pres sont
+ * fusionnes, ce qui relie les voies aux carrefours) et chaque segment une arete dans les deux
+ * sens, sauf propriete {@code oneway} ({@code yes}, {@code true}, {@code 1} ou {@code -1}). Les
+ * voies non carrossables ({@code highway} pieton, cycliste, escaliers...) sont ignorees. Les
+ * features sont lues une a une en flux, le fichier source n'est jamais charge en entier.
+ */
+public final class RoadGraphBuilder {
+
+  private static final double E7 = 1e7;
+  private static final Set<String> EXCLUDED_HIGHWAYS =
+      Set.of("footway", "path", "cycleway", "steps", "pedestrian", "bridleway", "corridor");
+
+  private final Map<Long, Integer> nodeIds = new HashMap<>();
+  private int[] latitudesE7 = new int[1_024];
+  private int[] longitudesE7 = new int[1_024];
+  private int nodeCount;
+  private int[] edgeSources = new int[1_024];
+  private int[] edgeTargets = new int[1_024];
+  private float[] edgeMeters = new float[1_024];
+  private int edgeCount;
+
+  private RoadGraphBuilder() {}
+
+  /** Lit le GeoJSON et ecrit le graphe dans {@code output} (via un fichier temporaire). */
+  public static void build(Path geojson, Path output, ObjectMapper mapper) throws IOException {
+    RoadGraphBuilder builder = new RoadGraphBuilder();
+    try (InputStream input = Files.newInputStream(geojson);
+        JsonParser parser = mapper.getFactory().createParser(input)) {
+      builder.readFeatureCollection(parser, mapper);
+    }
+    builder.write(output);
+  }
+
+  private void readFeatureCollection(JsonParser parser, ObjectMapper mapper) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("GeoJSON invalide: objet attendu");
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if ("features".equals(field) && value == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          addFeature(mapper.readTree(parser));
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private void addFeature(JsonNode feature) {
+    JsonNode properties = feature.path("properties");
+    if (EXCLUDED_HIGHWAYS.contains(properties.path("highway").asText(""))) {
+      return;
+    }
+    String oneway = properties.path("oneway").asText("no");
+    boolean forward = !"-1".equals(oneway);
+    boolean backward =
+        !("yes".equals(oneway) || "true".equals(oneway) || "1".equals(oneway));
+
+    JsonNode geometry = feature.path("geometry");
+    JsonNode coordinates = geometry.path("coordinates");
+    switch (geometry.path("type").asText("")) {
+      case "LineString" -> addLine(coordinates, forward, backward);
+      case "MultiLineString" -> {
+        for (JsonNode line : coordinates) {
+          addLine(line, forward, backward);
+        }
+      }
+      default -> {}
+    }
+  }
+
+  private void addLine(JsonNode coordinates, boolean forward, boolean backward) {
+    int previous = -1;
+    for (JsonNode coordinate : coordinates) {
+      if (coordinate.size() < 2) {
+        continue;
+      }
+      int node = node(coordinate.get(1).asDouble(), coordinate.get(0).asDouble());
+      if (previous >= 0 && previous != node) {
+        float meters = edgeLength(previous, node);
+        if (forward) {
+          addEdge(previous, node, meters);
+        }
+        if (backward) {
+          addEdge(node, previous, meters);
+        }
+      }
+      previous = node;
+    }
+  }
+
+  private int node(double latitude, double longitude) {
+    int latE7 = (int) Math.round(latitude * E7);
+    int lonE7 = (int) Math.round(longitude * E7);
+    long key = ((long) latE7 << 32) | (lonE7 & 0xffff_ffffL);
+    Integer existing = nodeIds.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    if (nodeCount == latitudesE7.length) {
+      latitudesE7 = Arrays.copyOf(latitudesE7, nodeCount * 2);
+      longitudesE7 = Arrays.copyOf(longitudesE7, nodeCount * 2);
+    }
+    latitudesE7[nodeCount] = latE7;
+    longitudesE7[nodeCount] = lonE7;
+    nodeIds.put(key, nodeCount);
+    return nodeCount++;
+  }
+
+  /**
+   * Longueur arrondie au flottant superieur : elle ne doit jamais etre plus courte que la
+   * distance a vol d'oiseau, qui sert d'heuristique a la recherche.
+   */
+  private float edgeLength(int from, int to) {
+    double meters =
+        GeoMath.distanceMeters(
+            latitudesE7[from] / E7,
+            longitudesE7[from] / E7,
+            latitudesE7[to] / E7,
+            longitudesE7[to] / E7);
+    float rounded = (float) meters;
+    return rounded < meters ? Math.nextUp(rounded) : rounded;
+  }
+
+  private void addEdge(int from, int to, float meters) {
+    if (edgeCount == edgeSources.length) {
+      edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+      edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+      edgeMeters = Arrays.copyOf(edgeMeters, edgeCount * 2);
+    }
+    edgeSources[edgeCount] = from;
+    edgeTargets[edgeCount] = to;
+    edgeMeters[edgeCount] = meters;
+    edgeCount++;
+  }
+
+  private void write(Path output) throws IOException {
+    long bytes = RoadGraph.byteSize(nodeCount, edgeCount);
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IOException("Graphe routier trop grand: " + bytes + " octets");
+    }
+    Path parent = output.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+      out.putInt(RoadGraph.MAGIC).putInt(RoadGraph.VERSION).putInt(nodeCount).putInt(edgeCount);
+      for (int n = 0; n < nodeCount; n++) {
+        out.putInt(latitudesE7[n]);
+      }
+      for (int n = 0; n < nodeCount; n++) {
+        out.putInt(longitudesE7[n]);
+      }
+      writeCsr(out, edgeSources, edgeTargets);
+      writeCsr(out, edgeTargets, edgeSources);
+      out.force();
+    }
+    Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** Ecrit les offsets, voisins et longueurs des aretes regroupees par {@code keys}. */
+  private void writeCsr(MappedByteBuffer out, int[] keys, int[] neighbours) {
+    int[] offsets = new int[nodeCount + 1];
+    for (int e = 0; e < edgeCount; e++) {
+      offsets[keys[e] + 1]++;
+    }
+    for (int n = 0; n < nodeCount; n++) {
+      offsets[n + 1] += offsets[n];
+    }
+    int[] order = new int[edgeCount];
+    int[] cursor = Arrays.copyOf(offsets, nodeCount);
+    for (int e = 0; e < edgeCount; e++) {
+      order[cursor[keys[e]]++] = e;
+    }
+    for (int offset : offsets) {
+      out.putInt(offset);
+    }
+    for (int e : order) {
+      out.putInt(neighbours[e]);
+    }
+    for (int e : order) {
+      out.putFloat(edgeMeters[e]);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import cpe.simulator.vehicles.domain.GeoPoint;
+
+/**
+ * Cle d'itineraire : depart et arrivee ramenes sur une grille reguliere, plus l'option
+ * d'accroche du depart. Deux demandes dans les memes cases partagent le meme trajet.
+ */
+record RouteKey(
+    long fromLatCell, long fromLonCell, long toLatCell, long toLonCell, boolean snapStart) {
+
+  private static final double METERS_PER_DEGREE = 6_371_000.0 * Math.PI / 180.0;
+
+  /**
+   * @param gridMeters cote des cases en latitude ; en longitude la case garde le meme pas en
+   *     degres, un peu plus etroite en metres
+   */
+  static RouteKey of(GeoPoint from, GeoPoint to, boolean snapStart, double gridMeters) {
+    double step = gridMeters / METERS_PER_DEGREE;
+    return new RouteKey(
+        cell(from.latitude(), step),
+        cell(from.longitude(), step),
+        cell(to.latitude(), step),
+        cell(to.longitude(), step),
+        snapStart);
+  }
+
+  /** Empreinte sur 64 bits, jamais nulle, utilisee par l'index sur disque. */
+  long hash64() {
+    long h = mix(fromLatCell);
+    h = mix(h ^ fromLonCell);
+    h = mix(h ^ toLatCell);
+    h = mix(h ^ toLonCell);
+    h = mix(h ^ (snapStart ? 1L : 2L));
+    return h == 0L ? 1L : h;
+  }
+
+  /** Finaliseur de SplitMix64. */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static long cell(double degrees, double step) {
+    return (long) Math.floor(degrees / step);
+  }
+}
@@ -1,7 +0,0 @@
-package cpe.simulator.vehicles.infrastructure.sdmis;
-
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import java.util.List;
-
-@JsonIgnoreProperties(ignoreUnknown = true)
-public record RouteGeometry(String type, List<List<Double>> coordinates) {}
@@ -1,6 +0,0 @@
-package cpe.simulator.vehicles.infrastructure.sdmis;
-
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-
-@JsonIgnoreProperties(ignoreUnknown = true)
-public record RouteResponse(double distanceM, double durationS, RouteGeometry geometry) {}
@@ -0,0 +1,158 @@
+package cpe.simulator.vehicles.infrastructure.sdmis;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import cpe.simulator.vehicles.infrastructure.http.JsonStreamReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decode en flux la reponse de {@code /geo/route} : les coordonnees sont ecrites directement dans
+ * deux tableaux d'entiers (degres x 1e7), sans {@code Double} ni liste par point.
+ *
+ * <p>Deux formes de geometrie sont acceptees : GeoJSON ({@code {"coordinates": [[lon, lat],
+ * ...]}}, points incomplets ou nuls ignores) ou polyligne encodee (chaine), en precision 5 par
+ * defaut ou 6 si {@code geometry_format} vaut {@code polyline6}. Les champs inconnus sont sautes.
+ */
+final class RouteResponseDecoder implements JsonStreamReader<RouteResponseDecoder.Route> {
+
+  private static final double E7 = 1e7;
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * Trajet decode ; seuls les {@code count} premiers points des tableaux sont valides.
+   *
+   * @param durationSeconds duree annoncee, {@code NaN} si absente
+   * @param hasGeometry faux si la reponse ne contient pas de geometrie
+   */
+  record Route(
+      double durationSeconds,
+      boolean hasGeometry,
+      int[] latitudesE7,
+      int[] longitudesE7,
+      int count) {}
+
+  @Override
+  public Route read(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+    double duration = Double.NaN;
+    boolean hasGeometry = false;
+    String polyline = null;
+    int precision = 5;
+    Points points = new Points();
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if (("duration_s".equals(field) || "durationS".equals(field)) && value.isNumeric()) {
+        duration = parser.getDoubleValue();
+      } else if ("geometry".equals(field) && value == JsonToken.START_OBJECT) {
+        hasGeometry = true;
+        readGeoJson(parser, points);
+      } else if ("geometry".equals(field) && value == JsonToken.VALUE_STRING) {
+        hasGeometry = true;
+        polyline = parser.getText();
+      } else if ("geometry_format".equals(field) && value == JsonToken.VALUE_STRING) {
+        precision = "polyline6".equals(parser.getText()) ? 6 : 5;
+      } else {
+        parser.skipChildren();
+      }
+    }
+    // Le format peut suivre la geometrie : la polyligne n'est decodee qu'une fois l'objet lu.
+    if (polyline != null) {
+      decodePolyline(polyline, precision, points);
+    }
+    return new Route(duration, hasGeometry, points.latitudesE7, points.longitudesE7, points.count);
+  }
+
+  private static void readGeoJson(JsonParser parser, Points points) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if (!"coordinates".equals(field) || value != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        continue;
+      }
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+          parser.skipChildren();
+          continue;
+        }
+        JsonToken lon = parser.nextToken();
+        parser.skipChildren();
+        double longitude = lon.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+        JsonToken lat = lon == JsonToken.END_ARRAY ? lon : parser.nextToken();
+        parser.skipChildren();
+        double latitude = lat.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+        if (lat != JsonToken.END_ARRAY) {
+          // Altitude eventuelle et valeurs suivantes ignorees.
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+          }
+        }
+        if (!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+          points.add((int) Math.round(latitude * E7), (int) Math.round(longitude * E7));
+        }
+      }
+    }
+  }
+
+  /**
+   * Polyligne encodee (algorithme Google) : ecarts successifs lat puis lon, en entiers a {@code
+   * precision} decimales, zigzag puis groupes de 5 bits decales de 63. La conversion en 1e-7
+   * degre est exacte.
+   */
+  private static void decodePolyline(String encoded, int precision, Points points)
+      throws IOException {
+    int scale = precision == 6 ? 10 : 100;
+    int length = encoded.length();
+    int index = 0;
+    long latitude = 0;
+    long longitude = 0;
+    boolean latitudeRead = false;
+    while (index < length) {
+      long result = 0;
+      int shift = 0;
+      int chunk;
+      do {
+        if (index >= length || shift > 60) {
+          throw new IOException("Polyligne tronquee a la position " + index);
+        }
+        chunk = encoded.charAt(index++) - 63;
+        result |= (long) (chunk & 0x1f) << shift;
+        shift += 5;
+      } while (chunk >= 0x20);
+      long delta = (result & 1) != 0 ? ~(result >>> 1) : result >>> 1;
+      if (latitudeRead) {
+        longitude += delta;
+        points.add((int) (latitude * scale), (int) (longitude * scale));
+      } else {
+        latitude += delta;
+      }
+      latitudeRead = !latitudeRead;
+    }
+    if (latitudeRead) {
+      throw new IOException("Polyligne tronquee: longitude manquante");
+    }
+  }
+
+  /** Tampon de points extensible. */
+  static final class Points {
+
+    int[] latitudesE7 = new int[INITIAL_CAPACITY];
+    int[] longitudesE7 = new int[INITIAL_CAPACITY];
+    int count;
+
+    void add(int latitudeE7, int longitudeE7) {
+      if (count == latitudesE7.length) {
+        latitudesE7 = Arrays.copyOf(latitudesE7, count * 2);
+        longitudesE7 = Arrays.copyOf(longitudesE7, count * 2);
+      }
+      latitudesE7[count] = latitudeE7;
+      longitudesE7[count] = longitudeE7;
+      count++;
+    }
+  }
+}
@@ -2,22 +2,51 @@ package cpe.simulator.vehicles.infrastructure.sdmis;
 
 import cpe.simulator.vehicles.api.Logger;
 import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.RoutePath;
 import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.core.RouteSimplifier;
 import cpe.simulator.vehicles.domain.GeoPoint;
 import cpe.simulator.vehicles.infrastructure.http.HttpApiClient;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
-/** Service de routage base sur l'API QG. */
+/**
+ * Service de routage base sur l'API QG.
+ *
+ * <p>Les trajets recus sont simplifies (Douglas-Peucker, {@link RouteSimplifier}) avant de
+ * construire le {@link RoutePlan} : les suites de points presque alignes n'apportent rien a
+ * l'affichage et alourdissent la memoire comme le suivi du trajet. La reponse est decodee en flux
+ * ({@link RouteResponseDecoder}) directement en coordonnees entieres, sans objet par point.
+ *
+ * <p>Chaque trajet recu, simplifie ou non, entre dans le taux de reduction cumule ; celui-ci est
+ * journalise tous les {@value #REPORT_EVERY} trajets quand la simplification est active.
+ */
 public final class SdmisRouteService implements RouteService {
 
+  private static final RouteResponseDecoder DECODER = new RouteResponseDecoder();
+  private static final long REPORT_EVERY = 10L;
+
   private final HttpApiClient apiClient;
   private final Logger logger;
+  private final double simplifyToleranceMeters;
+  private final AtomicLong receivedPoints = new AtomicLong();
+  private final AtomicLong keptPoints = new AtomicLong();
+  private final AtomicLong routes = new AtomicLong();
 
   public SdmisRouteService(HttpApiClient apiClient, Logger logger) {
+    this(apiClient, logger, 0.0);
+  }
+
+  /**
+   * @param simplifyToleranceMeters ecart maximal tolere entre le trajet recu et le trajet
+   *     simplifie, {@code 0} pour garder tous les points
+   */
+  public SdmisRouteService(
+      HttpApiClient apiClient, Logger logger, double simplifyToleranceMeters) {
     this.apiClient = apiClient;
     this.logger = logger;
+    this.simplifyToleranceMeters = simplifyToleranceMeters;
   }
 
   @Override
@@ -33,36 +62,49 @@ public final class SdmisRouteService implements RouteService {
             new RoutePointRequest(to.latitude(), to.longitude()),
             snapStart);
 
-    RouteResponse response = apiClient.post("/geo/route", request, RouteResponse.class);
-    if (response == null || response.geometry() == null) {
+    RouteResponseDecoder.Route route = apiClient.post("/geo/route", request, DECODER);
+    if (route == null || !route.hasGeometry()) {
       logger.warn("Itineraire absent de la reponse API");
       return null;
     }
-
-    List<List<Double>> coordinates = response.geometry().coordinates();
-    if (coordinates == null || coordinates.isEmpty()) {
+    if (route.count() == 0) {
       logger.warn("Itineraire vide retourne par l'API");
       return null;
     }
 
-    List<GeoPoint> points = new ArrayList<>(coordinates.size());
-    for (List<Double> coord : coordinates) {
-      if (coord == null || coord.size() < 2) {
-        continue;
-      }
-      Double lon = coord.get(0);
-      Double lat = coord.get(1);
-      if (lat == null || lon == null) {
-        continue;
-      }
-      points.add(new GeoPoint(lat, lon));
-    }
+    int[] latitudesE7 = route.latitudesE7();
+    int[] longitudesE7 = route.longitudesE7();
+    int kept =
+        RouteSimplifier.simplify(latitudesE7, longitudesE7, route.count(), simplifyToleranceMeters);
+    recordReduction(route.count(), kept);
+    return new RoutePlan(
+        RoutePath.intern(
+            Arrays.copyOf(latitudesE7, kept),
+            Arrays.copyOf(longitudesE7, kept),
+            route.durationSeconds()));
+  }
 
-    if (points.isEmpty()) {
-      logger.warn("Itineraire sans points valides");
-      return null;
-    }
+  /** Part des points retires depuis le demarrage, entre 0 et 1. */
+  public double vertexReductionRatio() {
+    long received = receivedPoints.get();
+    return received == 0 ? 0.0 : 1.0 - (double) keptPoints.get() / received;
+  }
 
-    return new RoutePlan(points);
+  private void recordReduction(int received, int kept) {
+    receivedPoints.addAndGet(received);
+    keptPoints.addAndGet(kept);
+    long count = routes.incrementAndGet();
+    if (simplifyToleranceMeters > 0.0 && count % REPORT_EVERY == 0) {
+      logger.info(
+          "Itineraires simplifies: "
+              + count
+              + " trajets, "
+              + receivedPoints.get()
+              + " -> "
+              + keptPoints.get()
+              + " points (reduction cumulee "
+              + Math.round(vertexReductionRatio() * 100.0)
+              + "%)");
+    }
   }
 }
@@ -0,0 +1,26 @@
+package cpe.simulator.vehicles;
+
+import cpe.simulator.vehicles.api.Logger;
+
+/** Loggers partages par les tests. */
+public final class Loggers {
+
+  private static final Logger SILENT =
+      new Logger() {
+        @Override
+        public void info(String message) {}
+
+        @Override
+        public void warn(String message) {}
+
+        @Override
+        public void error(String message) {}
+      };
+
+  private Loggers() {}
+
+  /** Logger qui ignore tous les messages. */
+  public static Logger silent() {
+    return SILENT;
+  }
+}
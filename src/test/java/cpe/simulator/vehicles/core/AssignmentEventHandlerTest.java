@@ -0,0 +1,111 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.api.VehicleAssignmentService;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import cpe.simulator.vehicles.domain.VehicleStatus;
+import cpe.simulator.vehicles.messaging.AssignmentMessage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AssignmentEventHandlerTest {
+
+  private static final Logger SILENT = Loggers.silent();
+
+  private static final GeoPoint BASE = new GeoPoint(45.75, 4.85);
+  private static final AssignmentMessage MESSAGE = new AssignmentMessage("V-0", 45.76, 4.86);
+
+  @Test
+  void phaseLookupAndRouteRunConcurrently() {
+    Fleet fleet = new Fleet(List.of(new VehicleState("V-0", BASE, BASE)), SILENT);
+    CountDownLatch routeStarted = new CountDownLatch(1);
+    CountDownLatch phaseStarted = new CountDownLatch(1);
+    RouteService routes =
+        (from, to, snapStart) -> {
+          routeStarted.countDown();
+          // Ne se termine que si la recherche de phase a demarre en parallele.
+          if (to.latitude() == 45.76 && !phaseStarted.await(5, TimeUnit.SECONDS)) {
+            return null;
+          }
+          return new RoutePlan(List.of(from, to));
+        };
+    VehicleAssignmentService phases =
+        immatriculation -> {
+          phaseStarted.countDown();
+          return routeStarted.await(5, TimeUnit.SECONDS) ? "phase-1" : null;
+        };
+
+    new AssignmentEventHandler(fleet, routes, phases, true, SILENT).onAssignment(MESSAGE);
+
+    assertEquals(VehicleStatus.ENGAGE, fleet.snapshot(0).status());
+    assertTrue(fleet.isMoving(0, new MovementModel(10.0, 5.0)));
+    assertNotNull(fleet.snapshot(0).assignmentTarget());
+  }
+
+  @Test
+  void failedPhaseLookupCancelsRoute() throws Exception {
+    Fleet fleet = new Fleet(List.of(new VehicleState("V-0", BASE, BASE)), SILENT);
+    CountDownLatch routeStarted = new CountDownLatch(1);
+    CountDownLatch routeInterrupted = new CountDownLatch(1);
+    RouteService routes =
+        (from, to, snapStart) -> {
+          routeStarted.countDown();
+          try {
+            new CountDownLatch(1).await();
+          } catch (InterruptedException e) {
+            routeInterrupted.countDown();
+          }
+          return null;
+        };
+    VehicleAssignmentService phases =
+        immatriculation -> {
+          routeStarted.await(5, TimeUnit.SECONDS);
+          throw new IOException("API indisponible");
+        };
+
+    new AssignmentEventHandler(fleet, routes, phases, true, SILENT).onAssignment(MESSAGE);
+
+    assertTrue(routeInterrupted.await(5, TimeUnit.SECONDS));
+    assertEquals(VehicleStatus.DISPONIBLE, fleet.snapshot(0).status());
+  }
+
+  @Test
+  void closeAbandonsReturnRoutePrefetch() throws Exception {
+    Fleet fleet = new Fleet(List.of(new VehicleState("V-0", BASE, BASE)), SILENT);
+    CountDownLatch prefetchStarted = new CountDownLatch(1);
+    CountDownLatch prefetchReturned = new CountDownLatch(1);
+    RouteService routes =
+        (from, to, snapStart) -> {
+          if (to.latitude() == BASE.latitude()) {
+            prefetchStarted.countDown();
+            try {
+              new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+              // Service qui ignore l'interruption et repond quand meme.
+            }
+            prefetchReturned.countDown();
+          }
+          return new RoutePlan(List.of(from, to));
+        };
+    AssignmentEventHandler handler =
+        new AssignmentEventHandler(fleet, routes, immatriculation -> "phase-1", true, SILENT);
+    handler.onAssignment(MESSAGE);
+    assertTrue(prefetchStarted.await(5, TimeUnit.SECONDS));
+
+    handler.close();
+
+    assertTrue(prefetchReturned.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50L);
+    assertNull(fleet.takeReturnRoute(0));
+  }
+}
@@ -0,0 +1,166 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.AssignmentMessageListener;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.TelemetryGateway;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import cpe.simulator.vehicles.domain.VehicleStatus;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class EventDrivenSimulatorTest {
+
+  private static final Logger SILENT = Loggers.silent();
+  private static final long HOUR_MS = 3_600_000L;
+
+  private static final GeoPoint BASE = new GeoPoint(45.75, 4.85);
+  /** A 1 000 m au nord de la base. */
+  private static final GeoPoint NORTH = new GeoPoint(45.75 + 1_000.0 / 111_195.0, 4.85);
+
+  private final MovementModel model = new MovementModel(20.0, 5.0);
+  private final ScriptedClock clock = new ScriptedClock();
+  private final RecordingGateway gateway = new RecordingGateway();
+  private final Fleet fleet =
+      new Fleet(List.of(new VehicleState("V-0", BASE, BASE)), SILENT, 1);
+
+  @Test
+  void arrivalFiresAtComputedTimeBetweenPolls() {
+    fleet.setAssignment(0, NORTH, null, "phase-1");
+    long expectedMs = (long) Math.ceil(fleet.secondsToArrival(0, model) * 1_000.0);
+
+    run(simulator(1_000L, HOUR_MS, HOUR_MS), 60_000L);
+
+    assertEquals(49_750L, expectedMs);
+    assertEquals(VehicleStatus.SUR_INTERVENTION, fleet.snapshot(0).status());
+    assertEquals(expectedMs, fleet.snapshot(0).arrivedAtTargetMs());
+    assertEquals(expectedMs, gateway.statuses.get(gateway.statuses.size() - 1));
+  }
+
+  @Test
+  void reassignmentMakesPendingArrivalCheckStale() {
+    GeoPoint south = new GeoPoint(45.75 - 2_000.0 / 111_195.0, 4.85);
+    fleet.setAssignment(0, NORTH, null, "phase-1");
+    clock.at(10_000L, () -> fleet.setAssignment(0, south, null, "phase-2"));
+    EventDrivenSimulator simulator = simulator(1_000L, HOUR_MS, HOUR_MS);
+
+    run(simulator, 60_000L);
+
+    // Affectation a 0, reaffectation a 10 s ; le controle prevu a 49,75 s pour le nord est
+    // ignore et celui du sud tombe apres l'arret.
+    assertEquals(2, simulator.eventCount());
+    assertEquals(VehicleStatus.ENGAGE, fleet.snapshot(0).status());
+    assertEquals(south, fleet.snapshot(0).assignmentTarget());
+  }
+
+  @Test
+  void telemetryIsSentAtItsDeadlines() {
+    fleet.setAssignment(0, NORTH, null, "phase-1");
+
+    run(simulator(1_000L, 3_000L, 5_000L), 20_000L);
+
+    assertEquals(List.of(0L, 3_000L, 6_000L, 9_000L, 12_000L, 15_000L, 18_000L), gateway.positions);
+    assertEquals(List.of(0L, 5_000L, 10_000L, 15_000L, 20_000L), gateway.statuses);
+  }
+
+  private EventDrivenSimulator simulator(long pollMs, long movingMs, long statusMs) {
+    return new EventDrivenSimulator(
+        fleet,
+        model,
+        gateway,
+        message -> {},
+        SILENT,
+        clock,
+        pollMs,
+        HOUR_MS,
+        movingMs,
+        statusMs,
+        HOUR_MS,
+        (from, to, snapStart) -> null,
+        true);
+  }
+
+  /** Deroule la simulation jusqu'a {@code stopMs} de temps simule. */
+  private void run(EventDrivenSimulator simulator, long stopMs) {
+    clock.stopAtMs = stopMs;
+    simulator.run();
+    // Le moteur restaure le drapeau d'interruption qui a servi a l'arreter.
+    Thread.interrupted();
+  }
+
+  /**
+   * Horloge virtuelle qui execute les actions programmees en passant leur heure, et interrompt la
+   * simulation au-dela de {@code stopAtMs}.
+   */
+  private static final class ScriptedClock extends SimulationClock {
+    private final TreeMap<Long, Runnable> actions = new TreeMap<>();
+    private long nanos;
+    private long stopAtMs = Long.MAX_VALUE;
+
+    ScriptedClock() {
+      super(0L);
+    }
+
+    void at(long atMs, Runnable action) {
+      actions.put(atMs, action);
+    }
+
+    @Override
+    public long nanoTime() {
+      return nanos;
+    }
+
+    @Override
+    public void sleepUntil(long deadlineNanos) throws InterruptedException {
+      long deadlineMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos);
+      Map.Entry<Long, Runnable> due;
+      while ((due = actions.firstEntry()) != null && due.getKey() <= deadlineMs) {
+        actions.pollFirstEntry();
+        nanos = Math.max(nanos, TimeUnit.MILLISECONDS.toNanos(due.getKey()));
+        due.getValue().run();
+      }
+      if (deadlineMs > stopAtMs) {
+        throw new InterruptedException();
+      }
+      nanos = Math.max(nanos, deadlineNanos);
+    }
+
+    @Override
+    public double timeScale() {
+      return Double.POSITIVE_INFINITY;
+    }
+  }
+
+  /** Envois de telemetrie, dates en millisecondes de temps simule. */
+  private final class RecordingGateway implements TelemetryGateway {
+    private final List<Long> positions = new ArrayList<>();
+    private final List<Long> statuses = new ArrayList<>();
+
+    @Override
+    public void start(AssignmentMessageListener listener) {}
+
+    @Override
+    public void publishVehiclePosition(
+        String immatriculation, GeoPoint position, long timestampSeconds) {
+      positions.add(clock.millis());
+    }
+
+    @Override
+    public void publishVehicleStatus(
+        String immatriculation, VehicleStatus status, long timestampSeconds) {
+      statuses.add(clock.millis());
+    }
+
+    @Override
+    public void publishIncidentStatus(String immatriculation, int status, long timestampSeconds) {}
+
+    @Override
+    public void close() {}
+  }
+}
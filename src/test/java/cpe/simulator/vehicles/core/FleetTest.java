@@ -0,0 +1,270 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import cpe.simulator.vehicles.domain.VehicleStatus;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FleetTest {
+
+  private static final Logger SILENT = Loggers.silent();
+
+  @Test
+  void shardedTickMatchesSequentialTick() {
+    MovementModel model = new MovementModel(20.0, 5.0);
+    Fleet sequential = new Fleet(vehicles(97), SILENT, 1);
+    Fleet sharded = new Fleet(vehicles(97), SILENT, 8);
+    assign(sequential);
+    assign(sharded);
+
+    for (int tick = 0; tick < 50; tick++) {
+      sequential.advanceAll(model, 0.2, tick * 200L);
+      sharded.advanceAll(model, 0.2, tick * 200L);
+    }
+
+    assertEquals(8, sharded.shardCount());
+    assertEquals(sequential.snapshots(), sharded.snapshots());
+    sharded.close();
+  }
+
+  @Test
+  void arrivalIsAppliedDuringTick() {
+    MovementModel model = new MovementModel(100.0, 5.0);
+    Fleet fleet = new Fleet(vehicles(1), SILENT, 1);
+    GeoPoint target = new GeoPoint(45.7501, 4.8501);
+    fleet.setAssignment(fleet.indexOf("V-0"), target, null, "phase-1");
+
+    FleetChanges changes = fleet.advanceAll(model, 1.0, 1_000L);
+    VehicleSnapshot snapshot = fleet.snapshot(changes.vehicleAt(0));
+
+    assertEquals(VehicleTransition.ARRIVED_AT_TARGET, snapshot.transition());
+    assertEquals(VehicleStatus.SUR_INTERVENTION, snapshot.status());
+    assertEquals(1_000L, snapshot.arrivedAtTargetMs());
+  }
+
+  @Test
+  void arrivalTransitionIsReportedForOneTickOnly() {
+    MovementModel model = new MovementModel(100.0, 5.0);
+    Fleet fleet = new Fleet(vehicles(1), SILENT, 1);
+    fleet.setAssignment(0, new GeoPoint(45.7501, 4.8501), null, "phase-1");
+    fleet.advanceAll(model, 1.0, 1_000L);
+    assertEquals(0, fleet.activeCount());
+
+    fleet.scheduleWake(0, 2_000L);
+    FleetChanges changes = fleet.advanceAll(model, 1.0, 2_000L);
+    VehicleSnapshot parked = fleet.snapshot(changes.vehicleAt(0));
+
+    assertEquals(1, changes.size());
+    assertEquals(VehicleStatus.SUR_INTERVENTION, parked.status());
+    assertEquals(VehicleTransition.NONE, parked.transition());
+  }
+
+  @Test
+  void onlyChangedOrDueVehiclesAreReported() {
+    MovementModel model = new MovementModel(20.0, 5.0);
+    Fleet fleet = new Fleet(vehicles(10), SILENT, 2);
+
+    assertEquals(10, fleet.advanceAll(model, 0.2, 0L).size());
+    for (int i = 0; i < fleet.size(); i++) {
+      fleet.scheduleWake(i, 5_000L);
+    }
+    assertEquals(0, fleet.advanceAll(model, 0.2, 200L).size());
+
+    fleet.setAssignment(fleet.indexOf("V-4"), new GeoPoint(45.76, 4.86), null, "phase-1");
+    FleetChanges changes = fleet.advanceAll(model, 0.2, 400L);
+    assertEquals(1, changes.size());
+    assertEquals(4, changes.vehicleAt(0));
+    assertTrue((changes.flagsAt(0) & FleetChanges.ASSIGNMENT) != 0);
+    assertTrue((changes.flagsAt(0) & FleetChanges.POSITION) != 0);
+
+    fleet.scheduleWake(4, 5_000L);
+    changes = fleet.advanceAll(model, 0.2, 5_000L);
+    assertEquals(fleet.size(), changes.size());
+  }
+
+  @Test
+  void arrivalCheckIsNeverLaterThanArrival() {
+    MovementModel model = new MovementModel(10.0, 5.0);
+    Fleet fleet = new Fleet(vehicles(1), SILENT, 1);
+    GeoPoint target = new GeoPoint(45.759, 4.85);
+    fleet.setAssignment(0, target, null, "phase-1");
+
+    double seconds = fleet.secondsToArrival(0, model);
+    assertTrue(fleet.isMoving(0, model));
+    assertEquals(VehicleTransition.NONE, fleet.advanceVehicle(0, model, seconds - 1.0, 0L));
+    assertEquals(VehicleTransition.ARRIVED_AT_TARGET, fleet.advanceVehicle(0, model, 1.0, 0L));
+    assertEquals(Double.POSITIVE_INFINITY, fleet.secondsToArrival(0, model));
+  }
+
+  @Test
+  void onlyEngagedOrReturningVehiclesAreActive() {
+    MovementModel model = new MovementModel(100.0, 5.0);
+    Fleet fleet = new Fleet(vehicles(10), SILENT, 2);
+    assertEquals(0, fleet.activeCount());
+    assertEquals(10, fleet.countByStatus(VehicleStatus.DISPONIBLE));
+
+    fleet.setAssignment(2, new GeoPoint(45.7505, 4.8505), null, "phase-1");
+    fleet.setAssignment(7, new GeoPoint(45.7505, 4.8505), null, "phase-1");
+    assertEquals(2, fleet.activeCount());
+    assertEquals(2, fleet.countByStatus(VehicleStatus.ENGAGE));
+
+    for (int tick = 1; tick <= 10; tick++) {
+      fleet.advanceAll(model, 1.0, tick * 1_000L);
+    }
+    assertEquals(0, fleet.activeCount());
+    assertEquals(2, fleet.countByStatus(VehicleStatus.SUR_INTERVENTION));
+
+    fleet.startReturnWithRoute(2, null);
+    assertEquals(1, fleet.activeCount());
+    for (int tick = 11; tick <= 20; tick++) {
+      fleet.advanceAll(model, 1.0, tick * 1_000L);
+    }
+    assertEquals(0, fleet.activeCount());
+    assertEquals(9, fleet.countByStatus(VehicleStatus.DISPONIBLE));
+  }
+
+  @Test
+  void lazyPlaybackEvaluatesPositionOnlyWhenRead() {
+    MovementModel model = new MovementModel(10.0, 5.0);
+    Fleet fleet = new Fleet(vehicles(1), SILENT, 1, RoutePlaybackMode.LAZY);
+    GeoPoint target = new GeoPoint(45.76, 4.85);
+    RoutePlan plan =
+        new RoutePlan(List.of(new GeoPoint(45.75, 4.85), new GeoPoint(45.755, 4.85), target), 50.0);
+    fleet.setAssignment(0, target, plan, "phase-1");
+
+    fleet.advanceAll(model, 1.0, 0L);
+    assertEquals(0, fleet.activeCount());
+    fleet.scheduleWake(0, Long.MAX_VALUE);
+
+    fleet.advanceAll(model, 1.0, 25_000L);
+    assertEquals(45.755, fleet.snapshot(0).position().latitude(), 1e-6);
+    assertEquals(VehicleStatus.ENGAGE, fleet.snapshot(0).status());
+
+    FleetChanges changes = fleet.advanceAll(model, 1.0, 50_100L);
+    assertEquals(1, changes.size());
+    assertEquals(1, fleet.activeCount());
+    fleet.advanceAll(model, 1.0, 51_100L);
+    assertEquals(VehicleStatus.SUR_INTERVENTION, fleet.snapshot(0).status());
+    assertEquals(51_100L, fleet.snapshot(0).arrivedAtTargetMs());
+  }
+
+  @Test
+  void spatialQueriesMatchFullScan() {
+    MovementModel model = new MovementModel(200.0, 5.0);
+    Random random = new Random(3);
+    List<VehicleState> list = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      GeoPoint base =
+          new GeoPoint(45.70 + random.nextDouble() * 0.12, 4.78 + random.nextDouble() * 0.16);
+      list.add(new VehicleState("V-" + i, base, base));
+    }
+    Fleet fleet = new Fleet(list, SILENT, 1);
+    for (int i = 0; i < fleet.size(); i += 4) {
+      fleet.setAssignment(i, new GeoPoint(45.76, 4.85), null, "phase-1");
+    }
+    for (int tick = 1; tick <= 20; tick++) {
+      fleet.advanceAll(model, 1.0, tick * 1_000L);
+    }
+
+    GeoPoint center = new GeoPoint(45.755, 4.842);
+    List<VehicleSnapshot> snapshots = fleet.snapshots();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < snapshots.size(); i++) {
+      if (snapshots.get(i).status() == VehicleStatus.DISPONIBLE) {
+        expected.add(i);
+      }
+    }
+    expected.sort(
+        Comparator.comparingDouble(
+            i -> GeoMath.distanceMeters(center, snapshots.get(i).position())));
+
+    int[] nearest = fleet.nearest(center, 7, VehicleStatus.DISPONIBLE);
+    assertArrayEquals(expected.subList(0, 7).stream().mapToInt(i -> i).toArray(), nearest);
+
+    int[] within = fleet.withinRadius(center, 1_500.0, VehicleStatus.DISPONIBLE);
+    int[] inRadius =
+        expected.stream()
+            .filter(i -> GeoMath.distanceMeters(center, snapshots.get(i).position()) <= 1_500.0)
+            .mapToInt(i -> i)
+            .toArray();
+    assertArrayEquals(inRadius, within);
+
+    int[] engaged = fleet.nearest(new GeoPoint(45.76, 4.85), 3, VehicleStatus.SUR_INTERVENTION);
+    assertEquals(3, engaged.length);
+  }
+
+  @Test
+  void returnRouteIsSplicedFromCurrentPositionUnlessMissionChanged() {
+    MovementModel model = new MovementModel(20.0, 5.0);
+    Fleet fleet = new Fleet(vehicles(1), SILENT, 1);
+    GeoPoint incident = new GeoPoint(45.76, 4.85);
+    fleet.setAssignment(0, incident, null, "phase-1");
+    for (int tick = 1; tick <= 60; tick++) {
+      fleet.advanceAll(model, 1.0, tick * 1_000L);
+    }
+    assertEquals(VehicleStatus.SUR_INTERVENTION, fleet.snapshot(0).status());
+
+    // La route est demandee au depart ; le vehicule file tout droit pendant le calcul.
+    fleet.startReturnWithRoute(0, null);
+    int epoch = fleet.routeEpoch(0);
+    for (int tick = 61; tick <= 65; tick++) {
+      fleet.advanceAll(model, 1.0, tick * 1_000L);
+    }
+    double before = fleet.snapshot(0).position().latitude();
+    List<GeoPoint> road = new ArrayList<>();
+    for (int k = 0; k <= 100; k++) {
+      road.add(new GeoPoint(45.76 - k * 1e-4, 4.85));
+    }
+    assertTrue(fleet.spliceRoute(0, epoch, new RoutePlan(road)));
+    fleet.advanceAll(model, 1.0, 66_000L);
+    assertEquals(before - 20.0 / 111_195.0, fleet.snapshot(0).position().latitude(), 1e-6);
+
+    fleet.setAssignment(0, incident, null, "phase-2");
+    assertFalse(fleet.spliceRoute(0, epoch, new RoutePlan(road)));
+  }
+
+  @Test
+  void prefetchedReturnRouteIsKeptOnlyForItsAssignment() {
+    Fleet fleet = new Fleet(vehicles(1), SILENT, 1);
+    GeoPoint incident = new GeoPoint(45.76, 4.85);
+    RoutePlan road = new RoutePlan(List.of(incident, new GeoPoint(45.75, 4.85)));
+
+    fleet.setAssignment(0, incident, null, "phase-1");
+    int firstEpoch = fleet.routeEpoch(0);
+    fleet.setAssignment(0, incident, null, "phase-2");
+    assertFalse(fleet.attachReturnRoute(0, firstEpoch, road));
+
+    assertTrue(fleet.attachReturnRoute(0, fleet.routeEpoch(0), road));
+    fleet.markArrivedAtTarget(0, 1_000L);
+    fleet.startReturn(0);
+    assertSame(road, fleet.takeReturnRoute(0));
+    assertNull(fleet.takeReturnRoute(0));
+  }
+
+  private static List<VehicleState> vehicles(int count) {
+    List<VehicleState> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      GeoPoint base = new GeoPoint(45.75 + i * 1e-4, 4.85);
+      list.add(new VehicleState("V-" + i, base, base));
+    }
+    return list;
+  }
+
+  private static void assign(Fleet fleet) {
+    for (int i = 0; i < fleet.size(); i += 3) {
+      fleet.setAssignment(i, new GeoPoint(45.76, 4.86), null, "phase-" + i);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class GeoMathTest {
+
+  private static final double LYON_LAT = 45.76;
+  private static final double LYON_LON = 4.85;
+
+  @Test
+  void localProjectionMatchesHaversineAtCityScale() {
+    LocalProjection projection = new LocalProjection(LYON_LAT);
+    Random random = new Random(42);
+    double maxRelativeError = 0.0;
+
+    for (int i = 0; i < 100_000; i++) {
+      double lat1 = LYON_LAT + (random.nextDouble() - 0.5) * 0.4;
+      double lon1 = LYON_LON + (random.nextDouble() - 0.5) * 0.6;
+      double lat2 = LYON_LAT + (random.nextDouble() - 0.5) * 0.4;
+      double lon2 = LYON_LON + (random.nextDouble() - 0.5) * 0.6;
+
+      double exact = GeoMath.distanceMeters(lat1, lon1, lat2, lon2);
+      double fast = projection.distanceMeters(lat1, lon1, lat2, lon2);
+      if (exact > 1.0) {
+        maxRelativeError = Math.max(maxRelativeError, Math.abs(fast - exact) / exact);
+      }
+    }
+
+    assertTrue(maxRelativeError < 1e-5, "ecart relatif " + maxRelativeError);
+  }
+
+  @Test
+  void localProjectionIsCentimetreAccurateForShortSteps() {
+    LocalProjection projection = new LocalProjection(LYON_LAT);
+
+    double exact = GeoMath.distanceMeters(45.70, 4.80, 45.705, 4.81);
+    double fast = projection.distanceMeters(45.70, 4.80, 45.705, 4.81);
+
+    assertEquals(exact, fast, 0.01);
+  }
+
+  @Test
+  void batchDistancesMatchScalarKernel() {
+    LocalProjection projection = new LocalProjection(LYON_LAT);
+    MovementModel model = new MovementModel(10.0, 500.0, projection);
+    Random random = new Random(7);
+    int count = 37;
+    double[] lat1 = new double[count];
+    double[] lon1 = new double[count];
+    double[] lat2 = new double[count];
+    double[] lon2 = new double[count];
+    for (int k = 0; k < count; k++) {
+      lat1[k] = LYON_LAT + (random.nextDouble() - 0.5) * 0.02;
+      lon1[k] = LYON_LON + (random.nextDouble() - 0.5) * 0.02;
+      lat2[k] = LYON_LAT + (random.nextDouble() - 0.5) * 0.02;
+      lon2[k] = LYON_LON + (random.nextDouble() - 0.5) * 0.02;
+    }
+    double[] distances = new double[count];
+    boolean[] atTarget = new boolean[count];
+
+    model.atTargetBatch(lat1, lon1, lat2, lon2, count, distances, atTarget);
+
+    // Egalite au bit pres, que le calcul groupe soit vectorise ou non.
+    for (int k = 0; k < count; k++) {
+      double scalar = projection.distanceMeters(lat1[k], lon1[k], lat2[k], lon2[k]);
+      assertEquals(Double.doubleToRawLongBits(scalar), Double.doubleToRawLongBits(distances[k]));
+      assertEquals(model.isAtTarget(lat1[k], lon1[k], lat2[k], lon2[k]), atTarget[k]);
+    }
+  }
+
+  @Test
+  void inPlaceMoveUsesSelectedKernel() {
+    DistanceKernel kernel = DistanceMode.EQUIRECTANGULAR.kernel(LYON_LAT);
+    double[] latitudes = {45.75};
+    double[] longitudes = {4.85};
+
+    double remaining = GeoMath.moveTowards(kernel, latitudes, longitudes, 0, 45.76, 4.86, 100.0);
+
+    double total = kernel.distanceMeters(45.75, 4.85, 45.76, 4.86);
+    assertEquals(total - 100.0, remaining, 1e-6);
+    assertEquals(remaining, kernel.distanceMeters(latitudes[0], longitudes[0], 45.76, 4.86), 0.01);
+  }
+}
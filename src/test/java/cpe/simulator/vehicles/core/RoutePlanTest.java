@@ -0,0 +1,91 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RoutePlanTest {
+
+  @Test
+  void followsRouteFromCurrentPositionToLastPoint() {
+    List<GeoPoint> points = new ArrayList<>();
+    for (int k = 0; k < 200; k++) {
+      points.add(new GeoPoint(45.75 + k * 1e-4, 4.85 + (k % 2) * 1e-4));
+    }
+    RoutePlan plan = new RoutePlan(points);
+    double[] latitudes = {45.7499};
+    double[] longitudes = {4.85};
+
+    plan.advance(latitudes, longitudes, 0, 5.0, DistanceKernel.HAVERSINE);
+    double approach = GeoMath.distanceMeters(45.7499, 4.85, 45.7501, 4.8501);
+    assertEquals(5.0, GeoMath.distanceMeters(45.7499, 4.85, latitudes[0], longitudes[0]), 1e-3);
+
+    double travelled = 5.0;
+    while (!plan.isComplete()) {
+      plan.advance(latitudes, longitudes, 0, 37.0, DistanceKernel.HAVERSINE);
+      travelled += 37.0;
+    }
+
+    assertTrue(travelled >= plan.lengthMeters());
+    assertTrue(plan.lengthMeters() > approach);
+    assertEquals(plan.lengthMeters(), plan.travelledMeters(), 1e-9);
+    assertEquals(45.7699, latitudes[0], 1e-9);
+    assertEquals(4.8501, longitudes[0], 1e-9);
+  }
+
+  @Test
+  void positionStaysOnRouteAfterLargeJump() {
+    RoutePlan plan =
+        new RoutePlan(
+            List.of(
+                new GeoPoint(45.75, 4.85),
+                new GeoPoint(45.75, 4.85),
+                new GeoPoint(45.76, 4.85),
+                new GeoPoint(45.76, 4.86)));
+    double[] latitudes = {45.75};
+    double[] longitudes = {4.85};
+
+    double firstLeg = GeoMath.distanceMeters(45.75, 4.85, 45.76, 4.85);
+    plan.advance(latitudes, longitudes, 0, firstLeg + 100.0, DistanceKernel.HAVERSINE);
+
+    assertFalse(plan.isComplete());
+    assertEquals(45.76, latitudes[0], 1e-6);
+    assertEquals(100.0, GeoMath.distanceMeters(45.76, 4.85, latitudes[0], longitudes[0]), 0.05);
+  }
+
+  @Test
+  void singlePointRouteIsComplete() {
+    assertTrue(new RoutePlan(List.of(new GeoPoint(45.75, 4.85))).isComplete());
+    assertTrue(new RoutePlan(List.of()).isComplete());
+  }
+
+  @Test
+  void identicalRoutesShareOneGeometryWithIndependentCursors() {
+    List<GeoPoint> points = new ArrayList<>();
+    for (int k = 0; k < 50; k++) {
+      points.add(new GeoPoint(45.75 + k * 1e-4, 4.85));
+    }
+    RoutePlan first = new RoutePlan(new ArrayList<>(points), 120.0);
+    RoutePlan second = new RoutePlan(new ArrayList<>(points), 120.0);
+    RoutePlan slower = new RoutePlan(new ArrayList<>(points), 240.0);
+
+    assertSame(first.path(), second.path());
+    assertFalse(first.path() == slower.path());
+    assertEquals(first.path().lengthMeters(), slower.path().lengthMeters());
+    double length = GeoMath.distanceMeters(45.75, 4.85, 45.7549, 4.85);
+    assertEquals(length, second.path().lengthMeters(), 0.01);
+
+    double[] latitudes = {45.75, 45.75};
+    double[] longitudes = {4.85, 4.85};
+    first.advance(latitudes, longitudes, 0, 100.0, DistanceKernel.HAVERSINE);
+    assertEquals(100.0, first.travelledMeters(), 1e-9);
+    assertEquals(0.0, second.travelledMeters(), 1e-9);
+    assertEquals(45.75, latitudes[1], 0.0);
+  }
+}
@@ -0,0 +1,112 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RouteSimplifierTest {
+
+  private static final double E7 = 1e7;
+
+  @Test
+  void keepsCornersAndDropsNearlyCollinearPoints() {
+    Random random = new Random(5);
+    int[] latitudesE7 = new int[201];
+    int[] longitudesE7 = new int[201];
+    // Deux troncons droits d'environ 1 km, bruites de moins d'un metre.
+    for (int k = 0; k <= 100; k++) {
+      latitudesE7[k] = toE7(45.75 + k * 9e-5);
+      longitudesE7[k] = toE7(4.85 + (random.nextDouble() - 0.5) * 1e-5);
+    }
+    for (int k = 1; k <= 100; k++) {
+      latitudesE7[100 + k] = toE7(45.759 + (random.nextDouble() - 0.5) * 1e-5);
+      longitudesE7[100 + k] = toE7(4.85 + k * 1.3e-4);
+    }
+    int[] latitudes = latitudesE7.clone();
+    int[] longitudes = longitudesE7.clone();
+
+    int kept = RouteSimplifier.simplify(latitudesE7, longitudesE7, 201, 2.0);
+
+    assertEquals(3, kept);
+    for (int[] point : new int[][] {{0, 0}, {1, 100}, {2, 200}}) {
+      assertEquals(latitudes[point[1]], latitudesE7[point[0]]);
+      assertEquals(longitudes[point[1]], longitudesE7[point[0]]);
+    }
+  }
+
+  @Test
+  void everyDroppedPointStaysWithinTolerance() {
+    Random random = new Random(11);
+    int count = 2_000;
+    int[] latitudesE7 = new int[count];
+    int[] longitudesE7 = new int[count];
+    int lat = 457_500_000;
+    int lon = 48_500_000;
+    for (int k = 0; k < count; k++) {
+      // Latitude strictement croissante : chaque point est identifiable par sa valeur.
+      lat += 1 + random.nextInt(500);
+      lon += random.nextInt(500) - 150;
+      latitudesE7[k] = lat;
+      longitudesE7[k] = lon;
+    }
+    int[] latitudes = latitudesE7.clone();
+    int[] longitudes = longitudesE7.clone();
+
+    int kept = RouteSimplifier.simplify(latitudesE7, longitudesE7, count, 3.0);
+
+    assertTrue(kept < count);
+    // Les points conserves sont une sous-suite des points d'origine.
+    int segment = 0;
+    for (int k = 1; k < count; k++) {
+      if (latitudes[k] == latitudesE7[segment + 1]) {
+        assertEquals(longitudes[k], longitudesE7[segment + 1]);
+        segment++;
+        continue;
+      }
+      double distance =
+          pointToSegmentMeters(
+              latitudes[k],
+              longitudes[k],
+              latitudesE7[segment],
+              longitudesE7[segment],
+              latitudesE7[segment + 1],
+              longitudesE7[segment + 1]);
+      assertTrue(distance <= 3.0 + 1e-6, "ecart " + distance);
+    }
+    assertEquals(kept - 1, segment);
+  }
+
+  @Test
+  void zeroToleranceLeavesPointsUntouched() {
+    int[] latitudesE7 = {457_500_000, 457_500_010, 457_500_020, 457_600_000};
+    int[] longitudesE7 = {48_500_000, 48_500_000, 48_500_000, 48_600_000};
+
+    assertEquals(4, RouteSimplifier.simplify(latitudesE7, longitudesE7, 4, 0.0));
+    assertEquals(2, RouteSimplifier.simplify(latitudesE7, longitudesE7, 2, 5.0));
+    assertArrayEquals(new int[] {457_500_000, 457_500_010, 457_500_020, 457_600_000}, latitudesE7);
+  }
+
+  private static int toE7(double degrees) {
+    return (int) Math.round(degrees * E7);
+  }
+
+  private static double pointToSegmentMeters(
+      int latE7, int lonE7, int aLatE7, int aLonE7, int bLatE7, int bLonE7) {
+    double scale = Math.cos(Math.toRadians(aLatE7 / E7));
+    double bx = (bLonE7 - aLonE7) / E7 * scale;
+    double by = (bLatE7 - aLatE7) / E7;
+    double px = (lonE7 - aLonE7) / E7 * scale;
+    double py = (latE7 - aLatE7) / E7;
+    double lengthSquared = bx * bx + by * by;
+    double t =
+        lengthSquared > 0.0
+            ? Math.max(0.0, Math.min(1.0, (px * bx + py * by) / lengthSquared))
+            : 0.0;
+    double dx = px - t * bx;
+    double dy = py - t * by;
+    return Math.sqrt(dx * dx + dy * dy) * 6_371_000.0 * Math.PI / 180.0;
+  }
+}
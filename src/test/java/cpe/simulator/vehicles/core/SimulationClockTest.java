@@ -0,0 +1,26 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class SimulationClockTest {
+
+  @Test
+  void zonedViewReadsSimulatedInstant() throws Exception {
+    SimulationClock clock = SimulationClock.withTimeScale(0.0);
+    ZoneId paris = ZoneId.of("Europe/Paris");
+
+    Clock zoned = clock.withZone(paris);
+    clock.sleepUntil(90_000_000_000L);
+
+    assertSame(clock, clock.withZone(ZoneOffset.UTC));
+    assertEquals(paris, zoned.getZone());
+    assertEquals(clock.instant(), zoned.instant());
+    assertSame(clock, zoned.withZone(ZoneOffset.UTC));
+  }
+}
@@ -0,0 +1,39 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpatialGridTest {
+
+  @Test
+  void cellHeadsMatchHashMapUnderChurn() {
+    SpatialGrid.CellHeads heads = new SpatialGrid.CellHeads();
+    Map<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(11);
+
+    for (int step = 0; step < 200_000; step++) {
+      // Peu de cases voisines : collisions et reculs frequents.
+      long key = ((long) random.nextInt(40) << 32) | (random.nextInt(40) & 0xffff_ffffL);
+      if (random.nextInt(3) == 0) {
+        heads.remove(key);
+        expected.remove(key);
+      } else {
+        int value = random.nextInt(1_000);
+        Integer previous = expected.put(key, value);
+        assertEquals(previous == null ? -1 : previous, heads.put(key, value));
+      }
+    }
+
+    for (int row = 0; row < 40; row++) {
+      for (int col = 0; col < 40; col++) {
+        long key = ((long) row << 32) | col;
+        assertEquals(expected.getOrDefault(key, -1), heads.get(key));
+      }
+    }
+    assertEquals(expected.isEmpty(), heads.isEmpty());
+  }
+}
@@ -0,0 +1,126 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TickSchedulerTest {
+
+  @Test
+  void virtualClockAdvancesOneTickPerCall() throws InterruptedException {
+    SimulationClock clock = SimulationClock.withTimeScale(0);
+    TickScheduler scheduler = new TickScheduler(clock, 200L, MissedTickPolicy.SKIP);
+    long startMs = clock.millis();
+
+    double total = 0.0;
+    for (int i = 0; i < 1_000; i++) {
+      total += scheduler.awaitNextTick();
+    }
+
+    assertEquals(200.0, total, 1e-6);
+    assertEquals(startMs + 199_800L, clock.millis());
+    assertEquals(0L, scheduler.overrunCount());
+  }
+
+  @Test
+  void deadlinesDoNotDriftWithTickWork() throws InterruptedException {
+    ManualClock clock = new ManualClock();
+    TickScheduler scheduler = new TickScheduler(clock, 200L, MissedTickPolicy.SKIP);
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0.2, scheduler.awaitNextTick(), 1e-9);
+      clock.work(30L);
+    }
+
+    assertEquals(99 * 200L + 30L, clock.millisElapsed());
+    assertEquals(0L, scheduler.overrunCount());
+  }
+
+  @Test
+  void skipPolicyDropsMissedDeadlinesAndCoversRealTime() throws InterruptedException {
+    ManualClock clock = new ManualClock();
+    TickScheduler scheduler = new TickScheduler(clock, 200L, MissedTickPolicy.SKIP);
+    scheduler.awaitNextTick();
+    clock.work(450L);
+
+    assertEquals(0.45, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(0.15, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(600L, clock.millisElapsed());
+    assertEquals(1L, scheduler.overrunCount());
+    assertEquals(1L, scheduler.skippedTickCount());
+  }
+
+  @Test
+  void catchUpPolicyReplaysMissedDeadlinesWithoutWaiting() throws InterruptedException {
+    ManualClock clock = new ManualClock();
+    TickScheduler scheduler = new TickScheduler(clock, 200L, MissedTickPolicy.CATCH_UP);
+    scheduler.awaitNextTick();
+    clock.work(450L);
+
+    assertEquals(0.2, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(0.2, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(450L, clock.millisElapsed());
+    assertEquals(0.2, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(600L, clock.millisElapsed());
+    assertEquals(2L, scheduler.overrunCount());
+    assertEquals(0L, scheduler.skippedTickCount());
+  }
+
+  @Test
+  void catchUpGivesUpBeyondMaximumBacklog() throws InterruptedException {
+    ManualClock clock = new ManualClock();
+    TickScheduler scheduler = new TickScheduler(clock, 200L, MissedTickPolicy.CATCH_UP);
+    scheduler.awaitNextTick();
+    clock.work(5_000L);
+
+    assertEquals(5.0, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(24L, scheduler.skippedTickCount());
+    assertEquals(0.2, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(5_200L, clock.millisElapsed());
+  }
+
+  @Test
+  void tickEndingExactlyOnDeadlineCountsAsOverrun() throws InterruptedException {
+    ManualClock clock = new ManualClock();
+    TickScheduler scheduler = new TickScheduler(clock, 200L, MissedTickPolicy.SKIP);
+    scheduler.awaitNextTick();
+    clock.work(200L);
+
+    assertEquals(0.2, scheduler.awaitNextTick(), 1e-9);
+    assertEquals(1L, scheduler.overrunCount());
+    assertEquals(0L, scheduler.skippedTickCount());
+  }
+
+  /** Horloge pilotee par le test : le travail d'un tick avance le temps, l'attente aussi. */
+  private static final class ManualClock extends SimulationClock {
+    private long nanos;
+
+    ManualClock() {
+      super(0L);
+    }
+
+    void work(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    long millisElapsed() {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public long nanoTime() {
+      return nanos;
+    }
+
+    @Override
+    public void sleepUntil(long deadlineNanos) {
+      nanos = Math.max(nanos, deadlineNanos);
+    }
+
+    @Override
+    public double timeScale() {
+      return 1.0;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package cpe.simulator.vehicles.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+  @Test
+  void expiresOnlyDueEntries() {
+    TimingWheel wheel = new TimingWheel(4, 100L, 8);
+    wheel.schedule(0, 1_050L);
+    wheel.schedule(1, 1_250L);
+    wheel.schedule(2, 1_090L);
+
+    List<Integer> expired = new ArrayList<>();
+    wheel.expire(1_000L, expired::add);
+    assertTrue(expired.isEmpty());
+
+    wheel.expire(1_060L, expired::add);
+    assertEquals(List.of(0), expired);
+
+    wheel.expire(1_300L, expired::add);
+    assertEquals(List.of(0, 2, 1), expired);
+    assertEquals(Long.MAX_VALUE, wheel.deadline(1));
+  }
+
+  @Test
+  void keepsDeadlinesBeyondOneTurn() {
+    TimingWheel wheel = new TimingWheel(2, 100L, 4);
+    wheel.expire(0L, id -> {});
+    wheel.schedule(0, 1_000L);
+
+    List<Integer> expired = new ArrayList<>();
+    for (long now = 100L; now < 1_000L; now += 100L) {
+      wheel.expire(now, expired::add);
+    }
+    assertTrue(expired.isEmpty());
+
+    wheel.expire(1_000L, expired::add);
+    assertEquals(List.of(0), expired);
+  }
+
+  @Test
+  void pastDeadlineFiresOnNextExpire() {
+    TimingWheel wheel = new TimingWheel(2, 100L, 4);
+    wheel.expire(5_000L, id -> {});
+    wheel.schedule(1, 10L);
+
+    List<Integer> expired = new ArrayList<>();
+    wheel.expire(5_000L, expired::add);
+    assertEquals(List.of(1), expired);
+  }
+
+  @Test
+  void rescheduleReplacesPreviousDeadline() {
+    TimingWheel wheel = new TimingWheel(1, 100L, 16);
+    wheel.schedule(0, 200L);
+    wheel.schedule(0, 900L);
+
+    List<Integer> expired = new ArrayList<>();
+    wheel.expire(500L, expired::add);
+    assertTrue(expired.isEmpty());
+    assertEquals(900L, wheel.deadline(0));
+
+    wheel.cancel(0);
+    wheel.expire(1_000L, expired::add);
+    assertTrue(expired.isEmpty());
+  }
+}
@@ -0,0 +1,70 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CachingRouteServiceTest {
+
+  private static final Logger SILENT = Loggers.silent();
+
+  private final AtomicInteger calls = new AtomicInteger();
+  private final RouteService backend =
+      (from, to, snapStart) -> {
+        calls.incrementAndGet();
+        return new RoutePlan(List.of(from, to));
+      };
+
+  @Test
+  void nearbyRequestsShareOneRouteWithSeparateCursors() throws Exception {
+    CachingRouteService cache = new CachingRouteService(backend, SILENT, 16, 60_000L, 25.0);
+    GeoPoint base = new GeoPoint(45.76001, 4.85001);
+    GeoPoint incident = new GeoPoint(45.75, 4.84);
+
+    RoutePlan first = cache.computeRoute(base, incident, true);
+    RoutePlan second = cache.computeRoute(new GeoPoint(45.76002, 4.85002), incident, true);
+    cache.computeRoute(base, incident, false);
+
+    assertEquals(2, calls.get());
+    assertNotSame(first, second);
+    assertSame(first.path(), second.path());
+    assertEquals(1, cache.hitCount());
+    assertEquals(2, cache.missCount());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedAndExpiredEntries() throws Exception {
+    AtomicLong now = new AtomicLong();
+    CachingRouteService cache =
+        new CachingRouteService(backend, SILENT, 2, 1_000L, 25.0, now::get);
+    GeoPoint target = new GeoPoint(45.75, 4.84);
+    GeoPoint a = new GeoPoint(45.70, 4.80);
+    GeoPoint b = new GeoPoint(45.71, 4.81);
+    GeoPoint c = new GeoPoint(45.72, 4.82);
+
+    cache.computeRoute(a, target, true);
+    cache.computeRoute(b, target, true);
+    cache.computeRoute(a, target, true);
+    cache.computeRoute(c, target, true);
+    assertEquals(1, cache.evictionCount());
+    cache.computeRoute(a, target, true);
+    cache.computeRoute(b, target, true);
+    assertEquals(4, calls.get());
+    assertEquals(2, cache.evictionCount());
+
+    now.set(2_000_000_000L);
+    cache.computeRoute(b, target, true);
+    assertEquals(5, calls.get());
+    assertEquals(3, cache.evictionCount());
+  }
+}
@@ -0,0 +1,136 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CoalescingRouteServiceTest {
+
+  private static final Logger SILENT = Loggers.silent();
+
+  private static final GeoPoint BASE = new GeoPoint(45.76, 4.85);
+  private static final GeoPoint INCIDENT = new GeoPoint(45.75, 4.84);
+
+  @Test
+  void concurrentIdenticalRequestsShareOneCall() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    RouteService slow =
+        (from, to, snapStart) -> {
+          calls.incrementAndGet();
+          release.await();
+          return new RoutePlan(List.of(from, to));
+        };
+    CoalescingRouteService service = new CoalescingRouteService(slow, SILENT, 25.0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(5);
+    try {
+      List<Future<RoutePlan>> results = new ArrayList<>();
+      for (int k = 0; k < 5; k++) {
+        results.add(executor.submit(() -> service.computeRoute(BASE, INCIDENT, true)));
+      }
+      while (service.issuedCount() + service.coalescedCount() < 5) {
+        Thread.sleep(5L);
+      }
+      release.countDown();
+
+      RoutePlan first = results.get(0).get(5, TimeUnit.SECONDS);
+      for (Future<RoutePlan> result : results) {
+        assertSame(first.path(), result.get(5, TimeUnit.SECONDS).path());
+      }
+      assertEquals(1, calls.get());
+      assertEquals(4, service.coalescedCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void failureReachesEveryWaiterAndIsNotRemembered() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    RouteService failing =
+        (from, to, snapStart) -> {
+          if (calls.incrementAndGet() == 1) {
+            release.await();
+            throw new IOException("API indisponible");
+          }
+          return new RoutePlan(List.of(from, to));
+        };
+    CoalescingRouteService service = new CoalescingRouteService(failing, SILENT, 25.0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<RoutePlan> leader = executor.submit(() -> service.computeRoute(BASE, INCIDENT, true));
+      while (service.issuedCount() == 0) {
+        Thread.sleep(5L);
+      }
+      Future<RoutePlan> follower =
+          executor.submit(() -> service.computeRoute(BASE, INCIDENT, true));
+      while (service.coalescedCount() == 0) {
+        Thread.sleep(5L);
+      }
+      release.countDown();
+
+      ExecutionException error = assertThrows(ExecutionException.class, follower::get);
+      assertEquals(IOException.class, error.getCause().getClass());
+      assertThrows(ExecutionException.class, leader::get);
+      service.computeRoute(BASE, INCIDENT, true);
+      assertEquals(2, calls.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void interruptedLeaderHandsRequestToFollower() throws Exception {
+    CountDownLatch never = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    RouteService blocking =
+        (from, to, snapStart) -> {
+          if (calls.incrementAndGet() == 1) {
+            never.await();
+          }
+          return new RoutePlan(List.of(from, to));
+        };
+    CoalescingRouteService service = new CoalescingRouteService(blocking, SILENT, 25.0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<RoutePlan> leader = executor.submit(() -> service.computeRoute(BASE, INCIDENT, true));
+      while (service.issuedCount() == 0) {
+        Thread.sleep(5L);
+      }
+      Future<RoutePlan> follower =
+          executor.submit(() -> service.computeRoute(BASE, INCIDENT, true));
+      while (service.coalescedCount() == 0) {
+        Thread.sleep(5L);
+      }
+      leader.cancel(true);
+
+      RoutePlan plan = follower.get(5, TimeUnit.SECONDS);
+      assertEquals(2, plan.pointCount());
+      assertEquals(2, calls.get());
+      assertEquals(2, service.issuedCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.api.RouteService;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskRouteStoreTest {
+
+  private static final Logger SILENT = Loggers.silent();
+
+  private static final RouteService OFFLINE =
+      (from, to, snapStart) -> {
+        throw new IllegalStateException("API de routage appelee");
+      };
+
+  private static final GeoPoint TARGET = new GeoPoint(45.75, 4.84);
+
+  @TempDir Path directory;
+
+  private final AtomicInteger calls = new AtomicInteger();
+  private final RouteService backend =
+      (from, to, snapStart) -> {
+        calls.incrementAndGet();
+        List<GeoPoint> points = new ArrayList<>();
+        for (int k = 0; k <= 20; k++) {
+          double f = k / 20.0;
+          points.add(
+              new GeoPoint(
+                  from.latitude() + (to.latitude() - from.latitude()) * f,
+                  from.longitude() + (to.longitude() - from.longitude()) * f));
+        }
+        return new RoutePlan(points, 300.0);
+      };
+
+  @Test
+  void routesSurviveRestartWithoutRoutingCalls() throws Exception {
+    RoutePlan computed;
+    try (DiskRouteStore store = DiskRouteStore.open(directory, backend, SILENT, 25.0, 0L)) {
+      computed = store.computeRoute(origin(0), TARGET, true);
+      store.computeRoute(origin(0), TARGET, true);
+      assertEquals(1, calls.get());
+      assertEquals(1, store.hitCount());
+    }
+
+    try (DiskRouteStore store = DiskRouteStore.open(directory, OFFLINE, SILENT, 25.0, 0L)) {
+      RoutePlan reloaded = store.computeRoute(origin(0), TARGET, true);
+      assertSame(computed.path(), reloaded.path());
+      assertEquals(1, store.size());
+    }
+  }
+
+  @Test
+  void unreadableStoreFallsBackToDelegate() throws Exception {
+    DiskRouteStore store = DiskRouteStore.open(directory, backend, SILENT, 25.0, 0L);
+    store.computeRoute(origin(0), TARGET, true);
+    store.close();
+
+    RoutePlan plan = store.computeRoute(origin(0), TARGET, true);
+
+    assertEquals(21, plan.pointCount());
+    assertEquals(2, calls.get());
+    assertEquals(2, store.missCount());
+  }
+
+  @Test
+  void rebuildsMissingIndexAndDropsTornTail() throws Exception {
+    long dataBytes;
+    try (DiskRouteStore store = DiskRouteStore.open(directory, backend, SILENT, 25.0, 0L)) {
+      for (int k = 0; k < 3; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+      dataBytes = store.dataBytes();
+    }
+    Files.delete(directory.resolve("routes.idx"));
+    Files.write(directory.resolve("routes.dat"), new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+    try (DiskRouteStore store = DiskRouteStore.open(directory, OFFLINE, SILENT, 25.0, 0L)) {
+      assertEquals(3, store.size());
+      assertEquals(dataBytes, store.dataBytes());
+      assertEquals(dataBytes, Files.size(directory.resolve("routes.dat")));
+      for (int k = 0; k < 3; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+    }
+  }
+
+  @Test
+  void reopensAfterInterruptedIndexResize() throws Exception {
+    Path indexFile = directory.resolve("routes.idx");
+    try (DiskRouteStore store = DiskRouteStore.open(directory, backend, SILENT, 25.0, 0L)) {
+      for (int k = 0; k < 511; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+    }
+    byte[] beforeResize = Files.readAllBytes(indexFile);
+    try (DiskRouteStore store = DiskRouteStore.open(directory, backend, SILENT, 25.0, 0L)) {
+      for (int k = 511; k < 520; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+    }
+    byte[] afterResize = Files.readAllBytes(indexFile);
+    assertTrue(afterResize.length > beforeResize.length);
+
+    // Arret avant la bascule : ancien index en place, nouvel index temporaire inacheve.
+    Files.write(indexFile, beforeResize);
+    Files.write(
+        directory.resolve("routes.idx.tmp"), Arrays.copyOf(afterResize, afterResize.length / 2));
+    assertAllRoutesReload(520);
+
+    // Arret avant l'ecriture de l'en-tete : entrees presentes, en-tete encore vide.
+    Arrays.fill(afterResize, 0, 32, (byte) 0);
+    Files.write(indexFile, afterResize);
+    assertAllRoutesReload(520);
+  }
+
+  @Test
+  void expiredRoutesAreRefreshedAndCompactedAway() throws Exception {
+    AtomicLong now = new AtomicLong();
+    try (DiskRouteStore store =
+        DiskRouteStore.open(directory, backend, SILENT, 25.0, 1_000L, now::get, 0L)) {
+      for (int k = 0; k < 40; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+      long fullSize = store.dataBytes();
+      now.set(5_000L);
+      for (int k = 0; k < 40; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+      assertEquals(80, calls.get());
+      for (int wait = 0; wait < 500 && store.compactionCount() == 0; wait++) {
+        Thread.sleep(10L);
+      }
+      assertTrue(store.compactionCount() > 0);
+      assertEquals(fullSize, store.dataBytes());
+    }
+
+    try (DiskRouteStore store =
+        DiskRouteStore.open(directory, OFFLINE, SILENT, 25.0, 1_000L, now::get, 0L)) {
+      assertEquals(40, store.size());
+      for (int k = 0; k < 40; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+    }
+  }
+
+  private void assertAllRoutesReload(int count) throws Exception {
+    try (DiskRouteStore store = DiskRouteStore.open(directory, OFFLINE, SILENT, 25.0, 0L)) {
+      assertEquals(count, store.size());
+      for (int k = 0; k < count; k++) {
+        store.computeRoute(origin(k), TARGET, true);
+      }
+    }
+  }
+
+  private static GeoPoint origin(int k) {
+    return new GeoPoint(45.70 + k * 0.001, 4.80);
+  }
+}
@@ -0,0 +1,195 @@
+package cpe.simulator.vehicles.infrastructure.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalRouteServiceTest {
+
+  private static final Logger SILENT = Loggers.silent();
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final int SIZE = 12;
+
+  @TempDir Path directory;
+
+  @Test
+  void shortestRoutesMatchDijkstraOnIrregularNetwork() throws Exception {
+    Random random = new Random(42);
+    double[][] lat = new double[SIZE][SIZE];
+    double[][] lon = new double[SIZE][SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      for (int j = 0; j < SIZE; j++) {
+        lat[i][j] = 45.75 + i * 0.002 + random.nextDouble() * 0.0008;
+        lon[i][j] = 4.84 + j * 0.003 + random.nextDouble() * 0.0008;
+      }
+    }
+    List<String> features = new ArrayList<>();
+    for (int i = 0; i < SIZE; i++) {
+      for (int j = 0; j + 1 < SIZE; j++) {
+        String oneway = random.nextInt(4) == 0 ? (random.nextBoolean() ? "yes" : "-1") : "no";
+        features.add(
+            line(oneway, "residential", lat[i][j], lon[i][j], lat[i][j + 1], lon[i][j + 1]));
+        features.add(line("no", "primary", lat[j][i], lon[j][i], lat[j + 1][i], lon[j + 1][i]));
+      }
+    }
+    for (int i = 0; i + 1 < SIZE; i += 3) {
+      features.add(
+          line("no", "footway", lat[i][i], lon[i][i], lat[i + 1][i + 1], lon[i + 1][i + 1]));
+    }
+    LocalRouteService service = open(features);
+    RoadGraph graph = RoadGraph.open(directory.resolve("roads.graph"));
+    assertEquals(SIZE * SIZE, graph.nodeCount());
+
+    for (int k = 0; k < 40; k++) {
+      int from = random.nextInt(graph.nodeCount());
+      int to = random.nextInt(graph.nodeCount());
+      RoutePlan plan =
+          service.computeRoute(
+              new GeoPoint(graph.latitude(from), graph.longitude(from)),
+              new GeoPoint(graph.latitude(to), graph.longitude(to)),
+              true);
+      assertNotNull(plan);
+      assertEquals(dijkstra(graph, from, to), plan.path().lengthMeters(), 0.5);
+    }
+  }
+
+  @Test
+  void onewayStreetsAreOnlyUsedForward() throws Exception {
+    LocalRouteService service =
+        open(
+            List.of(
+                line("yes", "residential", 45.750, 4.840, 45.750, 4.850),
+                line("no", "residential", 45.750, 4.850, 45.755, 4.845, 45.750, 4.840),
+                line("no", "footway", 45.750, 4.850, 45.750, 4.840)));
+    GeoPoint west = new GeoPoint(45.750, 4.840);
+    GeoPoint east = new GeoPoint(45.750, 4.850);
+
+    RoutePlan forward = service.computeRoute(west, east, true);
+    RoutePlan backward = service.computeRoute(east, west, true);
+
+    assertEquals(2, forward.pointCount());
+    assertEquals(3, backward.pointCount());
+    assertTrue(backward.path().lengthMeters() > forward.path().lengthMeters());
+  }
+
+  @Test
+  void snapsOffRoadPointsAndKeepsStartUnlessSnapped() throws Exception {
+    LocalRouteService service =
+        open(List.of(line("no", "residential", 45.750, 4.840, 45.750, 4.845, 45.750, 4.850)));
+    GeoPoint from = new GeoPoint(45.7503, 4.8401);
+    GeoPoint to = new GeoPoint(45.7497, 4.8499);
+
+    RoutePlan snapped = service.computeRoute(from, to, true);
+    RoutePlan kept = service.computeRoute(from, to, false);
+
+    assertEquals(4, snapped.pointCount());
+    assertEquals(5, kept.pointCount());
+    assertEquals(from.latitude() * 1e7, kept.path().latitudeE7(0), 1.0);
+    assertEquals(to.longitude() * 1e7, snapped.path().longitudeE7(3), 1.0);
+  }
+
+  @Test
+  void concurrentSearchesKeepPoolWithinProcessorCount() throws Exception {
+    LocalRouteService service =
+        open(List.of(line("no", "residential", 45.750, 4.840, 45.750, 4.845, 45.750, 4.850)));
+    GeoPoint west = new GeoPoint(45.750, 4.840);
+    GeoPoint east = new GeoPoint(45.750, 4.850);
+
+    List<Future<RoutePlan>> plans = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int k = 0; k < 200; k++) {
+        plans.add(executor.submit(() -> service.computeRoute(west, east, true)));
+      }
+      for (Future<RoutePlan> plan : plans) {
+        assertEquals(3, plan.get().pointCount());
+      }
+    }
+    assertTrue(service.pooledSearchCount() <= Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  void graphIsRebuiltOnlyWhenOlderThanSource() throws Exception {
+    List<String> features = List.of(line("no", "residential", 45.750, 4.840, 45.750, 4.850));
+    open(features);
+    Path graphFile = directory.resolve("roads.graph");
+    Path geojson = directory.resolve("roads.geojson");
+    FileTime source = Files.getLastModifiedTime(geojson);
+
+    FileTime newer = FileTime.fromMillis(source.toMillis() + 3_600_000L);
+    Files.setLastModifiedTime(graphFile, newer);
+    LocalRouteService.open(graphFile, geojson, MAPPER, SILENT);
+    assertEquals(newer, Files.getLastModifiedTime(graphFile));
+
+    FileTime older = FileTime.fromMillis(source.toMillis() - 3_600_000L);
+    Files.setLastModifiedTime(graphFile, older);
+    LocalRouteService.open(graphFile, geojson, MAPPER, SILENT);
+    assertTrue(Files.getLastModifiedTime(graphFile).compareTo(older) > 0);
+  }
+
+  private LocalRouteService open(List<String> features) throws Exception {
+    Path geojson = directory.resolve("roads.geojson");
+    Files.writeString(
+        geojson,
+        "{\"type\":\"FeatureCollection\",\"features\":[" + String.join(",", features) + "]}");
+    return LocalRouteService.open(directory.resolve("roads.graph"), geojson, MAPPER, SILENT);
+  }
+
+  /** Feature GeoJSON ; {@code points} alterne latitude et longitude. */
+  private static String line(String oneway, String highway, double... points) {
+    StringBuilder coordinates = new StringBuilder();
+    for (int k = 0; k < points.length; k += 2) {
+      coordinates.append(k == 0 ? "" : ",").append('[').append(points[k + 1]);
+      coordinates.append(',').append(points[k]).append(']');
+    }
+    return "{\"type\":\"Feature\",\"properties\":{\"highway\":\""
+        + highway
+        + "\",\"oneway\":\""
+        + oneway
+        + "\"},\"geometry\":{\"type\":\"LineString\",\"coordinates\":["
+        + coordinates
+        + "]}}";
+  }
+
+  private static double dijkstra(RoadGraph graph, int from, int to) {
+    double[] meters = new double[graph.nodeCount()];
+    Arrays.fill(meters, Double.POSITIVE_INFINITY);
+    meters[from] = 0.0;
+    PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+    queue.add(new double[] {0.0, from});
+    while (!queue.isEmpty()) {
+      double[] top = queue.poll();
+      int node = (int) top[1];
+      if (top[0] > meters[node]) {
+        continue;
+      }
+      for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+        double candidate = top[0] + graph.meters(e);
+        if (candidate < meters[graph.target(e)]) {
+          meters[graph.target(e)] = candidate;
+          queue.add(new double[] {candidate, graph.target(e)});
+        }
+      }
+    }
+    return meters[to];
+  }
+}
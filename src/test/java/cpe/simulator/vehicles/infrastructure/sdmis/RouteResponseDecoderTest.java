@@ -0,0 +1,80 @@
+package cpe.simulator.vehicles.infrastructure.sdmis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class RouteResponseDecoderTest {
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  @Test
+  void decodesCoordinatesSkippingInvalidPointsAndUnknownFields() throws Exception {
+    String json =
+        "{\"distance_m\":1200.5,\"legs\":[{\"steps\":[1,2]}],\"duration_s\":95.0,"
+            + "\"geometry\":{\"type\":\"LineString\",\"bbox\":[0,0,1,1],\"coordinates\":["
+            + "[4.84,45.75],null,[4.85],[4.86,null],[[1],2],[4.8512345,45.7612345,170.0],"
+            + "[4.87,45.77]]}}";
+
+    RouteResponseDecoder.Route route = decode(json);
+
+    assertTrue(route.hasGeometry());
+    assertEquals(95.0, route.durationSeconds());
+    assertEquals(3, route.count());
+    assertArrayEquals(
+        new int[] {457_500_000, 457_612_345, 457_700_000},
+        Arrays.copyOf(route.latitudesE7(), route.count()));
+    assertArrayEquals(
+        new int[] {48_400_000, 48_512_345, 48_700_000},
+        Arrays.copyOf(route.longitudesE7(), route.count()));
+  }
+
+  @Test
+  void growsBufferForLongRoutesAndReportsMissingGeometry() throws Exception {
+    StringBuilder coordinates = new StringBuilder();
+    for (int k = 0; k < 5_000; k++) {
+      coordinates.append(k == 0 ? "" : ",").append("[4.8,").append(45.0 + k * 1e-5).append(']');
+    }
+
+    RouteResponseDecoder.Route route =
+        decode("{\"geometry\":{\"coordinates\":[" + coordinates + "]}}");
+    RouteResponseDecoder.Route missing = decode("{\"duration_s\":10,\"geometry\":null}");
+
+    assertEquals(5_000, route.count());
+    assertEquals(450_499_900, route.latitudesE7()[4_999]);
+    assertTrue(Double.isNaN(route.durationSeconds()));
+    assertFalse(missing.hasGeometry());
+  }
+
+  @Test
+  void decodesEncodedPolylineWhateverTheFieldOrder() throws Exception {
+    // Exemple de reference de l'algorithme : (38.5, -120.2), (40.7, -120.95), (43.252, -126.453).
+    RouteResponseDecoder.Route route =
+        decode(
+            "{\"geometry\":\"_p~iF~ps|U_ulLnnqC_mqNvxq`@\",\"geometry_format\":\"polyline\"}");
+
+    assertTrue(route.hasGeometry());
+    assertEquals(3, route.count());
+    assertArrayEquals(
+        new int[] {385_000_000, 407_000_000, 432_520_000},
+        Arrays.copyOf(route.latitudesE7(), route.count()));
+    assertArrayEquals(
+        new int[] {-1_202_000_000, -1_209_500_000, -1_264_530_000},
+        Arrays.copyOf(route.longitudesE7(), route.count()));
+    assertThrows(IOException.class, () -> decode("{\"geometry\":\"_p~iF~ps|U_ul\"}"));
+  }
+
+  private static RouteResponseDecoder.Route decode(String json) throws Exception {
+    try (JsonParser parser = FACTORY.createParser(json)) {
+      return new RouteResponseDecoder().read(parser);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package cpe.simulator.vehicles.infrastructure.sdmis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.sun.net.httpserver.HttpServer;
+import cpe.simulator.vehicles.Loggers;
+import cpe.simulator.vehicles.api.Logger;
+import cpe.simulator.vehicles.core.RoutePlan;
+import cpe.simulator.vehicles.domain.GeoPoint;
+import cpe.simulator.vehicles.infrastructure.http.HttpApiClient;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SdmisRouteServiceTest {
+
+  private static final Logger SILENT = Loggers.silent();
+
+  private static final GeoPoint FROM = new GeoPoint(45.75, 4.84);
+  private static final GeoPoint TO = new GeoPoint(45.76, 4.86);
+
+  private HttpServer server;
+  private volatile String responseBody;
+  private volatile boolean compress;
+  private final List<String> acceptedEncodings = new CopyOnWriteArrayList<>();
+  private final List<Integer> sentBytes = new CopyOnWriteArrayList<>();
+  private HttpApiClient apiClient;
+  private SdmisRouteService service;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/geo/route",
+        exchange -> {
+          exchange.getRequestBody().readAllBytes();
+          String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+          acceptedEncodings.add(accepted);
+          byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+          if (compress && accepted != null && accepted.contains("gzip")) {
+            body = gzip(body);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+          }
+          sentBytes.add(body.length);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+    apiClient =
+        new HttpApiClient(
+            "http://127.0.0.1:" + server.getAddress().getPort(),
+            2_000L,
+            builder -> {},
+            HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+            mapper);
+    service = new SdmisRouteService(apiClient, SILENT, 0.0);
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void gzipResponsesAreDecodedAndSmallerOnTheWire() throws Exception {
+    StringBuilder coordinates = new StringBuilder();
+    for (int k = 0; k <= 1_000; k++) {
+      coordinates.append(k == 0 ? "" : ",");
+      coordinates.append('[').append(4.84 + k * 2e-5).append(',').append(45.75 + k * 1e-5);
+      coordinates.append(']');
+    }
+    responseBody =
+        "{\"distance_m\":2000.0,\"duration_s\":180.0,\"geometry\":{\"type\":\"LineString\","
+            + "\"coordinates\":["
+            + coordinates
+            + "]}}";
+
+    compress = false;
+    RoutePlan plain = service.computeRoute(FROM, TO, true);
+    compress = true;
+    RoutePlan compressed = service.computeRoute(FROM, TO, true);
+
+    assertEquals("gzip", acceptedEncodings.get(1));
+    assertTrue(sentBytes.get(1) * 2 < sentBytes.get(0));
+    assertNotNull(compressed);
+    assertEquals(1_001, compressed.pointCount());
+    assertEquals(180.0, compressed.durationSeconds());
+    assertEquals(plain.path(), compressed.path());
+  }
+
+  @Test
+  void polyline6GeometryMatchesGeoJsonGeometry() throws Exception {
+    int[] latitudesE6 = {45_750_000, 45_752_345, 45_755_001, 45_760_000};
+    int[] longitudesE6 = {4_840_000, 4_843_210, 4_851_999, 4_860_000};
+    StringBuilder coordinates = new StringBuilder();
+    for (int k = 0; k < latitudesE6.length; k++) {
+      coordinates.append(k == 0 ? "" : ",");
+      coordinates.append('[').append(longitudesE6[k] / 1e6).append(',');
+      coordinates.append(latitudesE6[k] / 1e6).append(']');
+    }
+    compress = true;
+
+    responseBody = "{\"duration_s\":60.0,\"geometry\":{\"coordinates\":[" + coordinates + "]}}";
+    RoutePlan geoJson = service.computeRoute(FROM, TO, true);
+    responseBody =
+        "{\"geometry_format\":\"polyline6\",\"duration_s\":60.0,\"geometry\":\""
+            + encode(latitudesE6, longitudesE6).replace("\\", "\\\\")
+            + "\"}";
+    RoutePlan polyline = service.computeRoute(FROM, TO, true);
+
+    assertEquals(4, polyline.pointCount());
+    assertEquals(geoJson.path(), polyline.path());
+  }
+
+  @Test
+  void reductionCountsEveryRouteAndIsLoggedPeriodically() throws Exception {
+    List<String> messages = new CopyOnWriteArrayList<>();
+    Logger recording =
+        new Logger() {
+          @Override
+          public void info(String message) {
+            messages.add(message);
+          }
+
+          @Override
+          public void warn(String message) {}
+
+          @Override
+          public void error(String message) {}
+        };
+    SdmisRouteService simplifying = new SdmisRouteService(apiClient, recording, 5.0);
+
+    responseBody =
+        "{\"duration_s\":60.0,\"geometry\":{\"coordinates\":"
+            + "[[4.84,45.75],[4.845,45.7525],[4.85,45.755],[4.86,45.76]]}}";
+    simplifying.computeRoute(FROM, TO, true);
+    responseBody =
+        "{\"duration_s\":60.0,\"geometry\":{\"coordinates\":[[4.84,45.75],[4.86,45.76]]}}";
+    for (int k = 1; k < 10; k++) {
+      simplifying.computeRoute(FROM, TO, true);
+    }
+
+    // 4 + 9 x 2 points recus, 2 gardes par trajet : les trajets inchanges comptent aussi.
+    assertEquals(1.0 - 20.0 / 22.0, simplifying.vertexReductionRatio(), 1e-12);
+    assertEquals(1, messages.size());
+  }
+
+  /** Encodage de reference d'une polyligne (valeurs deja a la precision voulue). */
+  private static String encode(int[] latitudes, int[] longitudes) {
+    StringBuilder out = new StringBuilder();
+    int previousLat = 0;
+    int previousLon = 0;
+    for (int k = 0; k < latitudes.length; k++) {
+      encodeValue(latitudes[k] - previousLat, out);
+      encodeValue(longitudes[k] - previousLon, out);
+      previousLat = latitudes[k];
+      previousLon = longitudes[k];
+    }
+    return out.toString();
+  }
+
+  private static void encodeValue(int delta, StringBuilder out) {
+    int value = delta < 0 ? ~(delta << 1) : delta << 1;
+    while (value >= 0x20) {
+      out.append((char) ((0x20 | (value & 0x1f)) + 63));
+      value >>>= 5;
+    }
+    out.append((char) (value + 63));
+  }
+
+  private static byte[] gzip(byte[] body) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+      out.write(body);
+    }
+    return buffer.toByteArray();
+  }
+}